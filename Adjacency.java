@@ -0,0 +1,356 @@
+package edu.kit.informatik;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Speichert gewichtete Kanten zwischen Teilen, die ueber ihre Nummer im
+ * PartGraph angesprochen werden. Fuer jedes Teil sind die Nummern der
+ * Nachbarn aufsteigend sortiert zusammen mit der jeweiligen Anzahl abgelegt.
+ *
+ * <p>Die Kanten liegen in einer kompakten Basis im CSR-Format (compressed sparse
+ * row): die Nachbarn aller Teile stehen hintereinander in einem einzigen Array,
+ * offsets gibt an, wo die Nachbarn eines Teils beginnen. Wird ein Teil
+ * veraendert, werden seine Kanten in eine eigene Delta-Schicht kopiert und dort
+ * bearbeitet. Sobald seit der letzten Verdichtung mehr Kanten veraendert wurden,
+ * als insgesamt gespeichert sind, werden beide wieder zu einer neuen Basis
+ * verdichtet. Gezaehlt werden dabei nur die Aenderungen und nicht die Groesse
+ * der Delta-Schicht, da sonst schon eine einzige Aenderung an einem Teil mit
+ * sehr vielen Nachbarn jedes Mal eine Verdichtung ausloesen wuerde.
+ *
+ * <p>Mit freeze wird eine unveraenderliche Version abgezogen. Die Basis wird
+ * ohnehin nie veraendert, sondern nur bei der Verdichtung ersetzt, und die
+ * Delta-Schicht liegt in einem PersistentArray. Die Kanten eines Teils, die
+ * noch zu einer Version gehoeren, werden vor der naechsten Aenderung kopiert.
+ * Mit thaw kann aus einer Version wieder eine veraenderbare Adjacency werden.
+ * Damit diese keine Kanten veraendert, die noch zu einer anderen Adjacency
+ * gehoeren, werden die Nummern (epoch) fuer alle Adjacency-Objekte gemeinsam
+ * vergeben.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class Adjacency {
+    /**
+     * Mindestanzahl von Aenderungen seit der letzten Verdichtung, ab der
+     * verdichtet wird.
+     */
+    private static final int MIN_CHANGES_TO_COMPACT = 1024;
+
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private int[] offsets = new int[1];
+    private int[] baseTargets = new int[0];
+    private int[] baseValues = new int[0];
+
+    private PersistentArray<Edges> delta = new PersistentArray<Edges>();
+    private int deltaNodes = 0;
+    private long epoch = EPOCHS.incrementAndGet();
+    private int changeCount = 0;
+    private int edgeCount = 0;
+
+    /**
+     * Erstellt eine leere Adjacency.
+     */
+    public Adjacency() {
+    }
+
+    /**
+     * Erstellt eine Adjacency, deren Basis direkt aus den gegebenen Arrays im
+     * CSR-Format besteht. Die Nachbarn jedes Teils muessen aufsteigend sortiert
+     * sein. Die Arrays werden nicht kopiert.
+     *
+     * @param offsets Stelle, an der die Nachbarn jedes Teils beginnen, mit der
+     *                Gesamtzahl der Kanten als letztem Eintrag.
+     * @param targets Nummern der Nachbarn aller Teile.
+     * @param values  Anzahlen an den Kanten.
+     */
+    public Adjacency(int[] offsets, int[] targets, int[] values) {
+        this.offsets = offsets;
+        this.baseTargets = targets;
+        this.baseValues = values;
+        this.edgeCount = targets.length;
+    }
+
+    /**
+     * Erstellt eine Version oder eine veraenderbare Kopie aus einer Basis und
+     * einer Delta-Schicht.
+     *
+     * @param source Adjacency, deren Basis uebernommen wird.
+     * @param delta  Delta-Schicht der neuen Adjacency.
+     */
+    private Adjacency(Adjacency source, PersistentArray<Edges> delta) {
+        this.offsets = source.offsets;
+        this.baseTargets = source.baseTargets;
+        this.baseValues = source.baseValues;
+        this.delta = delta;
+        this.deltaNodes = source.deltaNodes;
+        this.edgeCount = source.edgeCount;
+    }
+
+    /**
+     * Gibt eine unveraenderliche Version mit den aktuellen Kanten zurueck, die
+     * gleichzeitig von mehreren Threads gelesen werden darf. Spaetere Aenderungen
+     * sind in der Version nicht sichtbar.
+     *
+     * @return unveraenderliche Version der Kanten.
+     */
+    public Adjacency freeze() {
+        Adjacency version = new Adjacency(this, delta.freeze());
+        epoch = EPOCHS.incrementAndGet();
+        return version;
+    }
+
+    /**
+     * Gibt eine veraenderbare Adjacency zurueck, die mit den Kanten dieser
+     * Version beginnt. Die Kanten werden erst bei einer Aenderung kopiert.
+     *
+     * @return veraenderbare Kopie der Kanten.
+     */
+    public Adjacency thaw() {
+        return new Adjacency(this, delta.thaw());
+    }
+
+    /**
+     * Gibt eine neue Adjacency zurueck, in der alle Kanten umgedreht sind. Da die
+     * Teile aufsteigend durchlaufen werden, sind auch die Nachbarn in der neuen
+     * Adjacency aufsteigend sortiert.
+     *
+     * @param nodes Anzahl der Teile, also obere Schranke aller Nummern.
+     * @return Adjacency mit den umgedrehten Kanten.
+     */
+    public Adjacency transpose(int nodes) {
+        int[] newOffsets = new int[nodes + 1];
+        for (int node = 0; node < nodes; node++) {
+            for (int i = 0; i < getDegree(node); i++) {
+                newOffsets[getTarget(node, i) + 1]++;
+            }
+        }
+        for (int node = 0; node < nodes; node++) {
+            newOffsets[node + 1] += newOffsets[node];
+        }
+
+        int[] next = Arrays.copyOf(newOffsets, nodes);
+        int[] newTargets = new int[edgeCount];
+        int[] newValues = new int[edgeCount];
+        for (int node = 0; node < nodes; node++) {
+            for (int i = 0; i < getDegree(node); i++) {
+                int position = next[getTarget(node, i)]++;
+                newTargets[position] = node;
+                newValues[position] = getValue(node, i);
+            }
+        }
+        return new Adjacency(newOffsets, newTargets, newValues);
+    }
+
+    /**
+     * Gibt die Anzahl der Nachbarn eines Teils zurueck.
+     *
+     * @param node Nummer des Teils.
+     * @return Anzahl der Nachbarn.
+     */
+    public int getDegree(int node) {
+        Edges edges = delta.get(node);
+        if (edges != null) {
+            return edges.size;
+        } else if (node + 1 < offsets.length) {
+            return offsets[node + 1] - offsets[node];
+        }
+        return 0;
+    }
+
+    /**
+     * Gibt die Nummer des index-ten Nachbarn eines Teils zurueck. Die Nachbarn
+     * sind aufsteigend nach ihrer Nummer sortiert.
+     *
+     * @param node  Nummer des Teils.
+     * @param index Stelle des Nachbarn, zwischen 0 und getDegree(node) - 1.
+     * @return Nummer des Nachbarn.
+     */
+    public int getTarget(int node, int index) {
+        Edges edges = delta.get(node);
+        if (edges != null) {
+            return edges.targets[index];
+        }
+        return baseTargets[offsets[node] + index];
+    }
+
+    /**
+     * Gibt die Anzahl zurueck, die an der Kante zum index-ten Nachbarn eines
+     * Teils steht.
+     *
+     * @param node  Nummer des Teils.
+     * @param index Stelle des Nachbarn, zwischen 0 und getDegree(node) - 1.
+     * @return Anzahl an der Kante.
+     */
+    public int getValue(int node, int index) {
+        Edges edges = delta.get(node);
+        if (edges != null) {
+            return edges.values[index];
+        }
+        return baseValues[offsets[node] + index];
+    }
+
+    /**
+     * Gibt die Anzahl an der Kante zwischen zwei Teilen zurueck oder 0, falls
+     * keine solche Kante existiert.
+     *
+     * @param node   Nummer des Teils, bei dem die Kante beginnt.
+     * @param target Nummer des Teils, bei dem die Kante endet.
+     * @return Anzahl an der Kante oder 0.
+     */
+    public int getValueTo(int node, int target) {
+        int index;
+        Edges edges = delta.get(node);
+        if (edges != null) {
+            index = Arrays.binarySearch(edges.targets, 0, edges.size, target);
+            return index >= 0 ? edges.values[index] : 0;
+        } else if (node + 1 < offsets.length) {
+            index = Arrays.binarySearch(baseTargets, offsets[node], offsets[node + 1], target);
+            return index >= 0 ? baseValues[index] : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Setzt die Anzahl an der Kante zwischen zwei Teilen. Existiert die Kante noch
+     * nicht, wird sie eingefuegt, ist value 0, wird sie entfernt.
+     *
+     * @param node   Nummer des Teils, bei dem die Kante beginnt.
+     * @param target Nummer des Teils, bei dem die Kante endet.
+     * @param value  neue Anzahl an der Kante oder 0.
+     */
+    public void setValue(int node, int target, int value) {
+        Edges edges = copyToDelta(node);
+        int[] targets = edges.targets;
+        int[] values = edges.values;
+        int size = edges.size;
+        int index = Arrays.binarySearch(targets, 0, size, target);
+
+        if (index >= 0 && value != 0) {
+            values[index] = value;
+        } else if (index >= 0) {
+            System.arraycopy(targets, index + 1, targets, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            edges.size--;
+            edgeCount--;
+        } else if (value != 0) {
+            index = -index - 1;
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(4, size * 2));
+                values = Arrays.copyOf(values, targets.length);
+                edges.targets = targets;
+                edges.values = values;
+            }
+            System.arraycopy(targets, index, targets, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            targets[index] = target;
+            values[index] = value;
+            edges.size++;
+            edgeCount++;
+        }
+
+        changeCount++;
+        if (changeCount > MIN_CHANGES_TO_COMPACT && changeCount > edgeCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Entfernt alle Kanten, die bei einem Teil beginnen.
+     *
+     * @param node Nummer des Teils.
+     */
+    public void clear(int node) {
+        Edges edges = copyToDelta(node);
+        changeCount += edges.size;
+        edgeCount -= edges.size;
+        edges.size = 0;
+    }
+
+    /**
+     * Gibt die Anzahl aller gespeicherten Kanten zurueck.
+     *
+     * @return Anzahl aller Kanten.
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Kopiert die Kanten eines Teils aus der Basis oder aus einer Version in die
+     * Delta-Schicht, falls sie dort noch nicht veraendert werden duerfen, und
+     * gibt sie zurueck.
+     *
+     * @param node Nummer des Teils.
+     * @return veraenderbare Kanten des Teils.
+     */
+    private Edges copyToDelta(int node) {
+        Edges edges = delta.get(node);
+        if (edges != null && edges.epoch == epoch) {
+            return edges;
+        }
+        Edges copy = new Edges();
+        copy.epoch = epoch;
+        if (edges != null) {
+            copy.targets = Arrays.copyOf(edges.targets, edges.size);
+            copy.values = Arrays.copyOf(edges.values, edges.size);
+            copy.size = edges.size;
+        } else {
+            int degree = getDegree(node);
+            int start = degree > 0 ? offsets[node] : 0;
+            copy.targets = Arrays.copyOfRange(baseTargets, start, start + degree);
+            copy.values = Arrays.copyOfRange(baseValues, start, start + degree);
+            copy.size = degree;
+        }
+        delta.set(node, copy);
+        deltaNodes = Math.max(deltaNodes, node + 1);
+        return copy;
+    }
+
+    /**
+     * Verdichtet die Basis und die Delta-Schicht zu einer neuen Basis. Danach ist
+     * die Delta-Schicht leer.
+     */
+    private void compact() {
+        int nodes = Math.max(offsets.length - 1, deltaNodes);
+        int[] newOffsets = new int[nodes + 1];
+        int[] newTargets = new int[edgeCount];
+        int[] newValues = new int[edgeCount];
+
+        int position = 0;
+        for (int node = 0; node < nodes; node++) {
+            newOffsets[node] = position;
+            int degree = getDegree(node);
+            Edges edges = delta.get(node);
+            if (edges != null) {
+                System.arraycopy(edges.targets, 0, newTargets, position, degree);
+                System.arraycopy(edges.values, 0, newValues, position, degree);
+            } else if (degree > 0) {
+                System.arraycopy(baseTargets, offsets[node], newTargets, position, degree);
+                System.arraycopy(baseValues, offsets[node], newValues, position, degree);
+            }
+            position += degree;
+        }
+        newOffsets[nodes] = position;
+
+        offsets = newOffsets;
+        baseTargets = newTargets;
+        baseValues = newValues;
+        delta = new PersistentArray<Edges>();
+        deltaNodes = 0;
+        changeCount = 0;
+    }
+
+    /**
+     * Kanten eines einzelnen Teils in der Delta-Schicht. Nur Kanten, deren epoch
+     * der aktuellen epoch der Adjacency entspricht, gehoeren zu keiner Version und
+     * duerfen direkt veraendert werden.
+     */
+    private static class Edges {
+        private int[] targets;
+        private int[] values;
+        private int size;
+        private long epoch;
+    }
+}
@@ -0,0 +1,246 @@
+package edu.kit.informatik;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Zaehlt fuer jedes Teil eine Anzahl, nach der Nummer des Teils indiziert.
+ * Gerechnet wird mit long. Nur die Anzahlen, die nicht mehr in ein long
+ * passen, werden fuer ihr Teil als BigInteger weitergefuehrt. Bei jeder
+ * Rechnung wird auf einen Ueberlauf geprueft, ohne dass dabei Objekte angelegt
+ * werden, solange alle beteiligten Anzahlen in ein long passen.
+ *
+ * <p>Alle Anzahlen sind nicht negativ. Ein Produkt zweier Werte unter 2^31
+ * passt immer in ein long, fuer grosse Faktoren wird der Ueberlauf mit
+ * Math.multiplyHigh geprueft. Eine Summe zweier nicht negativer Werte ist genau
+ * dann uebergelaufen, wenn sie negativ ist.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class Amounts {
+    private long[] values;
+    private BigInteger[] large;
+
+    /**
+     * Erstellt Anzahlen fuer die gegebene Anzahl an Nummern.
+     *
+     * @param capacity Anzahl der Nummern, fuer die gezaehlt werden kann.
+     */
+    public Amounts(int capacity) {
+        values = new long[capacity];
+    }
+
+    /**
+     * Vergroessert die Arrays, falls sie weniger als nodes Nummern fassen.
+     *
+     * @param nodes Anzahl der Nummern, fuer die gezaehlt werden soll.
+     */
+    public void ensureCapacity(int nodes) {
+        if (nodes > values.length) {
+            int capacity = Math.max(nodes, values.length * 2);
+            values = Arrays.copyOf(values, capacity);
+            if (large != null) {
+                large = Arrays.copyOf(large, capacity);
+            }
+        }
+    }
+
+    /**
+     * Setzt die Anzahl eines Teils auf 0.
+     *
+     * @param id Nummer des Teils.
+     */
+    public void clear(int id) {
+        values[id] = 0;
+        if (large != null) {
+            large[id] = null;
+        }
+    }
+
+    /**
+     * Gibt true zurueck, falls die Anzahl eines Teils 0 ist.
+     *
+     * @param id Nummer des Teils.
+     * @return true, falls die Anzahl 0 ist, sonst false.
+     */
+    public boolean isZero(int id) {
+        return values[id] == 0 && !isLarge(id);
+    }
+
+    /**
+     * Gibt die Anzahl eines Teils als Long oder, falls sie nicht in ein long
+     * passt, als BigInteger zurueck.
+     *
+     * @param id Nummer des Teils.
+     * @return Anzahl des Teils.
+     */
+    public Number get(int id) {
+        return isLarge(id) ? large[id] : Long.valueOf(values[id]);
+    }
+
+    /**
+     * Addiert eine Anzahl zur Anzahl eines Teils.
+     *
+     * @param id     Nummer des Teils.
+     * @param amount zu addierende Anzahl, nicht negativ.
+     */
+    public void add(int id, long amount) {
+        addProduct(id, amount, null, 1, null);
+    }
+
+    /**
+     * Addiert factor mal die Anzahl eines Teils aus source zur Anzahl eines
+     * Teils. source darf dabei diese Anzahlen selbst sein.
+     *
+     * @param id       Nummer des Teils, dessen Anzahl erhoeht wird.
+     * @param factor   Faktor, nicht negativ.
+     * @param source   Anzahlen, aus denen gelesen wird.
+     * @param sourceId Nummer des Teils in source.
+     */
+    public void addProduct(int id, long factor, Amounts source, int sourceId) {
+        addProduct(id, factor, null, source.values[sourceId], source.getLarge(sourceId));
+    }
+
+    /**
+     * Addiert factor mal die index-te Anzahl einer Aufloesung zur Anzahl eines
+     * Teils.
+     *
+     * @param id        Nummer des Teils, dessen Anzahl erhoeht wird.
+     * @param factor    Faktor, nicht negativ.
+     * @param explosion Aufloesung, aus der gelesen wird.
+     * @param index     Stelle in der Aufloesung.
+     */
+    public void addProduct(int id, long factor, Explosion explosion, int index) {
+        addProduct(id, factor, null, explosion.getAmount(index), explosion.getLargeAmount(index));
+    }
+
+    /**
+     * Addiert die index-te Anzahl einer Aufloesung mal die Anzahl eines Teils aus
+     * source zur Anzahl eines Teils.
+     *
+     * @param id        Nummer des Teils, dessen Anzahl erhoeht wird.
+     * @param explosion Aufloesung, aus der gelesen wird.
+     * @param index     Stelle in der Aufloesung.
+     * @param source    Anzahlen, aus denen der zweite Faktor gelesen wird.
+     * @param sourceId  Nummer des Teils in source.
+     */
+    public void addProduct(int id, Explosion explosion, int index, Amounts source, int sourceId) {
+        addProduct(id, explosion.getAmount(index), explosion.getLargeAmount(index), source.values[sourceId],
+                source.getLarge(sourceId));
+    }
+
+    /**
+     * Zieht eine Anzahl von der Anzahl eines Teils ab, hoechstens bis 0.
+     *
+     * @param id     Nummer des Teils.
+     * @param amount abzuziehende Anzahl, nicht negativ.
+     */
+    public void subtract(int id, long amount) {
+        if (isLarge(id)) {
+            setLarge(id, large[id].subtract(BigInteger.valueOf(amount)));
+        } else {
+            values[id] = Math.max(0, values[id] - amount);
+        }
+    }
+
+    /**
+     * Erstellt eine Aufloesung aus den Anzahlen der gegebenen Teile.
+     *
+     * @param ids Nummern der Teile in der Reihenfolge der Aufloesung.
+     * @return Aufloesung mit den Anzahlen der Teile.
+     */
+    public Explosion toExplosion(int[] ids) {
+        long[] totals = new long[ids.length];
+        BigInteger[] largeTotals = null;
+        for (int i = 0; i < ids.length; i++) {
+            totals[i] = values[ids[i]];
+            if (isLarge(ids[i])) {
+                if (largeTotals == null) {
+                    largeTotals = new BigInteger[ids.length];
+                }
+                largeTotals[i] = large[ids[i]];
+            }
+        }
+        return new Explosion(ids, totals, largeTotals);
+    }
+
+    /**
+     * Addiert das Produkt zweier Faktoren zur Anzahl eines Teils. Ein Faktor, fuer
+     * den ein BigInteger gegeben ist, wird mit diesem statt mit dem long
+     * berechnet.
+     *
+     * @param id          Nummer des Teils.
+     * @param first       erster Faktor.
+     * @param largeFirst  erster Faktor als BigInteger oder null.
+     * @param second      zweiter Faktor.
+     * @param largeSecond zweiter Faktor als BigInteger oder null.
+     */
+    private void addProduct(int id, long first, BigInteger largeFirst, long second, BigInteger largeSecond) {
+        if (largeFirst == null && largeSecond == null && !isLarge(id)) {
+            long product = first * second;
+            if (((first | second) >>> 31) == 0 || (Math.multiplyHigh(first, second) == 0 && product >= 0)) {
+                long sum = values[id] + product;
+                if (sum >= 0) {
+                    values[id] = sum;
+                    return;
+                }
+            }
+        }
+        BigInteger product = toBigInteger(first, largeFirst).multiply(toBigInteger(second, largeSecond));
+        setLarge(id, toBigInteger(values[id], getLarge(id)).add(product));
+    }
+
+    /**
+     * Setzt die Anzahl eines Teils. Passt sie in ein long, wird sie wieder als
+     * long gespeichert.
+     *
+     * @param id     Nummer des Teils.
+     * @param amount neue Anzahl, nicht negativ.
+     */
+    private void setLarge(int id, BigInteger amount) {
+        if (amount.bitLength() < Long.SIZE) {
+            values[id] = Math.max(0, amount.longValue());
+            if (large != null) {
+                large[id] = null;
+            }
+            return;
+        }
+        if (large == null) {
+            large = new BigInteger[values.length];
+        }
+        large[id] = amount;
+    }
+
+    /**
+     * Gibt true zurueck, falls die Anzahl eines Teils nicht in ein long passt.
+     *
+     * @param id Nummer des Teils.
+     * @return true, falls die Anzahl als BigInteger gespeichert ist.
+     */
+    private boolean isLarge(int id) {
+        return large != null && large[id] != null;
+    }
+
+    /**
+     * Gibt die Anzahl eines Teils als BigInteger zurueck, falls sie nicht in ein
+     * long passt.
+     *
+     * @param id Nummer des Teils.
+     * @return Anzahl als BigInteger oder null, falls sie in ein long passt.
+     */
+    private BigInteger getLarge(int id) {
+        return large != null ? large[id] : null;
+    }
+
+    /**
+     * Gibt einen Wert als BigInteger zurueck.
+     *
+     * @param value      Wert als long.
+     * @param largeValue Wert als BigInteger oder null, falls value gilt.
+     * @return Wert als BigInteger.
+     */
+    private static BigInteger toBigInteger(long value, BigInteger largeValue) {
+        return largeValue != null ? largeValue : BigInteger.valueOf(value);
+    }
+}
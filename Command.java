@@ -1,6 +1,8 @@
 package edu.kit.informatik;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Enum beinhaltet alle Befehle, deren Ausfhrung und wie die Enums als String
@@ -58,7 +60,7 @@ public enum Command {
      * Modelliert den Befehl "printAssembly", also dessen Ausfuehrung und
      * Darstellung als String.
      */
-    PRINT_ASSEMBLY("printAssembly") {
+    PRINT_ASSEMBLY("printAssembly", true) {
         /**
          * Fuehrt den Befehl "printAssembly" aus.
          *
@@ -77,7 +79,7 @@ public enum Command {
      * Modelliert den Befehl "getAssemblies", also dessen Ausfuehrung und
      * Darstellung als String.
      */
-    GET_ASSEMBLIES("getAssemblies") {
+    GET_ASSEMBLIES("getAssemblies", true) {
         /**
          * Fuehrt den Befehl "getAssemblies" aus.
          *
@@ -96,7 +98,7 @@ public enum Command {
      * Modelliert den Befehl "getComponents", also dessen Ausfuehrung und
      * Darstellung als String.
      */
-    GET_COMPONENTS("getComponents") {
+    GET_COMPONENTS("getComponents", true) {
         /**
          * Fuehrt den Befehl "getComponents" aus.
          *
@@ -157,11 +159,244 @@ public enum Command {
             Output.printOK();
         }
     },
+    /**
+     * Modelliert den Befehl "whereUsed", also dessen Ausfuehrung und Darstellung
+     * als String.
+     */
+    WHERE_USED("whereUsed", true) {
+        /**
+         * Fuehrt den Befehl "whereUsed" aus. Gibt alle Baugruppen aus, in denen das
+         * gegebene Teil direkt vorkommt.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         * @throws IllegalArgumentException falls eine Eingabe inkorrekt war und der
+         *                                  Befehl nicht ausgefuehrt werden konte.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            Output.printAssembliesOrComponents(allParts.getSuperParts(firstAssembly));
+        }
+    },
+    /**
+     * Modelliert den Befehl "getUsedIn", also dessen Ausfuehrung und Darstellung
+     * als String.
+     */
+    GET_USED_IN("getUsedIn", true) {
+        /**
+         * Fuehrt den Befehl "getUsedIn" aus. Gibt alle obersten Baugruppen aus, in
+         * denen das gegebene Teil direkt oder indirekt vorkommt, mit der
+         * Gesamtanzahl des Teils.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         * @throws IllegalArgumentException falls eine Eingabe inkorrekt war und der
+         *                                  Befehl nicht ausgefuehrt werden konte.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            Output.printAssembliesOrComponents(allParts.getUsedIn(firstAssembly));
+        }
+    },
+    /**
+     * Modelliert den Befehl "contains", also dessen Ausfuehrung und Darstellung
+     * als String.
+     */
+    CONTAINS("contains", true) {
+        /**
+         * Fuehrt den Befehl "contains" aus. Gibt "YES" aus, falls das zweite Teil
+         * der Eingabe direkt oder indirekt in der Baugruppe vorkommt, sonst "NO".
+         *
+         * @param allParts Alle Teile, die im System existieren.
+         * @param input    gepruefte Eingabe.
+         * @throws IllegalArgumentException falls eine Eingabe inkorrekt war und der
+         *                                  Befehl nicht ausgefuehrt werden konte.
+         */
+        @Override
+        public void execute(PartList allParts, ValidateInput input) {
+            Output.printAnswer(allParts.contains(input.getFirstPartName(), input.getSecondPartName()));
+        }
+    },
+    /**
+     * Modelliert den Befehl "getAllComponents", also dessen Ausfuehrung und
+     * Darstellung als String.
+     */
+    GET_ALL_COMPONENTS("getAllComponents", true) {
+        /**
+         * Fuehrt den Befehl "getAllComponents" aus. Gibt fuer jede Baugruppe eine
+         * Zeile mit ihrem Namen und allen ihren Einzelteilen aus, oder "EMPTY", falls
+         * es keine Baugruppe gibt.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            if (allParts.getAllComponents(Output::printAssemblyComponents) == 0) {
+                Output.printAssembliesOrComponents(new TreeMap<String, Number>());
+            }
+        }
+    },
+    /**
+     * Modelliert den Befehl "mrp", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    MRP("mrp", true) {
+        /**
+         * Fuehrt den Befehl "mrp" mit dem Lagerbestand der Eingabe aus.
+         *
+         * @param allParts Alle Teile, die im System existieren.
+         * @param input    gepruefte Eingabe.
+         * @throws IllegalArgumentException falls eine Eingabe inkorrekt war und der
+         *                                  Befehl nicht ausgefuehrt werden konte.
+         */
+        @Override
+        public void execute(PartList allParts, ValidateInput input) {
+            print(allParts.getRequirements(input.getParts(), input.getStock()));
+        }
+
+        /**
+         * Gibt Brutto- und Nettobedarf in je einer Zeile aus.
+         *
+         * @param requirements Ergebnis des Planungslaufs.
+         */
+        private void print(Requirements requirements) {
+            Output.printAssembliesOrComponents(requirements.getGross());
+            Output.printAssembliesOrComponents(requirements.getNet());
+        }
+    },
+    /**
+     * Modelliert den Befehl "save", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    SAVE("save", true) {
+        /**
+         * Fuehrt den Befehl "save" aus. Speichert alle Teile als Snapshot in der
+         * gegebenen Datei. Falls der Befehl erfolgreich ausgefuehrt wurde, wird "OK"
+         * ausgegeben.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Pfad der Datei, in die gespeichert werden soll.
+         * @throws IllegalArgumentException falls die Datei nicht geschrieben werden
+         *                                  konnte.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            allParts.save(firstAssembly);
+            Output.printOK();
+        }
+    },
+    /**
+     * Modelliert den Befehl "load", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    LOAD("load") {
+        /**
+         * Fuehrt den Befehl "load" aus. Ersetzt alle Teile durch die Teile aus dem
+         * Snapshot in der gegebenen Datei. Falls der Befehl erfolgreich ausgefuehrt
+         * wurde, wird "OK" ausgegeben.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Pfad der Datei, aus der geladen werden soll.
+         * @throws IllegalArgumentException falls die Datei nicht gelesen werden
+         *                                  konnte oder kein gueltiger Snapshot ist.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            allParts.load(firstAssembly);
+            Output.printOK();
+        }
+    },
+    /**
+     * Modelliert den Befehl "begin", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    BEGIN("begin") {
+        /**
+         * Fuehrt den Befehl "begin" aus. Beginnt eine Transaktion. Falls der Befehl
+         * erfolgreich ausgefuehrt wurde, wird "OK" ausgegeben.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         * @throws IllegalArgumentException falls bereits eine Transaktion laeuft.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            allParts.begin();
+            Output.printOK();
+        }
+    },
+    /**
+     * Modelliert den Befehl "commit", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    COMMIT("commit") {
+        /**
+         * Fuehrt den Befehl "commit" aus. Beendet die laufende Transaktion und prueft
+         * dabei einmal alle neuen Kanten auf Zyklen. Falls der Befehl erfolgreich
+         * ausgefuehrt wurde, wird "OK" ausgegeben.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         * @throws IllegalArgumentException falls keine Transaktion laeuft oder ein
+         *                                  Zyklus entstehen wuerde.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            allParts.commit();
+            Output.printOK();
+        }
+    },
+    /**
+     * Modelliert den Befehl "rollback", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    ROLLBACK("rollback") {
+        /**
+         * Fuehrt den Befehl "rollback" aus. Setzt alle Teile auf den Stand vor begin
+         * zurueck. Falls der Befehl erfolgreich ausgefuehrt wurde, wird "OK"
+         * ausgegeben.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         * @throws IllegalArgumentException falls keine Transaktion laeuft.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            allParts.rollback();
+            Output.printOK();
+        }
+    },
+    /**
+     * Modelliert den Befehl "stats", also dessen Ausfuehrung und Darstellung als
+     * String.
+     */
+    STATS("stats", true) {
+        /**
+         * Fuehrt den Befehl "stats" aus. Gibt die Groesse des Katalogs, die Dauer
+         * der bisher ausgefuehrten Befehle und die Anzahl der Fehlermeldungen aus.
+         *
+         * @param allParts      Alle Teile, die im System existieren.
+         * @param newParts      Neue Teile, die verarbeitet werden sollen.
+         * @param firstAssembly Das teil, welches das erste Teil der Parameter des
+         *                      Inputs ist.
+         */
+        public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
+            Output.printStatistics(allParts.getStatistics(), allParts.size(), allParts.getEdgeCount(),
+                    allParts.getMaxDepth());
+        }
+    },
     /**
      * Modelliert den Befehl "quit", also dessen Ausfuehrung und Darstellung als
      * String.
      */
-    QUIT("quit") {
+    QUIT("quit", true) {
         /**
          * Fuehrt den Befehl "quit" aus.
          *
@@ -173,13 +408,13 @@ public enum Command {
          *                                  Befehl nicht ausgefuehrt werden konte.
          */
         public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
-            stillRunning = false;
+            STILL_RUNNING.set(false);
         }
     },
     /**
      * Enum, das einen nicht korrekten Befehl modelliert.
      */
-    ILLEGAL_COMMAND("illegal") {
+    ILLEGAL_COMMAND("illegal", true) {
         /**
          * Wirft eine Exception, dass der Befehl ungueltig ist.
          *
@@ -191,16 +426,34 @@ public enum Command {
          *                                  Befehl nicht ausgefuehrt werden konte.
          */
         public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly) {
-            throw new IllegalArgumentException("command doesn't exist!");
+            throw ErrorType.UNKNOWN_COMMAND.exception();
         }
     };
 
     /**
      * Variable, die anzeigt, ob das Programm weiter laufen soll, oder beendet
-     * werden soll (durch quit).
+     * werden soll (durch quit). Im Server-Modus beendet quit nur die Sitzung des
+     * jeweiligen Clients, daher gilt die Variable pro Thread.
+     */
+    private static final ThreadLocal<Boolean> STILL_RUNNING = ThreadLocal.withInitial(() -> true);
+
+    /**
+     * Alle Befehle, nach dem ersten Zeichen ihrer Darstellung als String
+     * eingeteilt. Eine Zeile wird so nur mit den wenigen Befehlen verglichen, die
+     * mit demselben Zeichen beginnen.
      */
-    private static boolean stillRunning = true;
+    private static final Command[][] BY_FIRST_CHARACTER = new Command[128][0];
+
+    static {
+        for (Command type : values()) {
+            char first = type.asString.charAt(0);
+            Command[] candidates = Arrays.copyOf(BY_FIRST_CHARACTER[first], BY_FIRST_CHARACTER[first].length + 1);
+            candidates[candidates.length - 1] = type;
+            BY_FIRST_CHARACTER[first] = candidates;
+        }
+    }
     private String asString;
+    private boolean readOnly;
     
     /**
      * Setzt asString auf den Wert, der vom jeweiligen Enum uebergeben wird und
@@ -209,7 +462,19 @@ public enum Command {
      * @param asString
      */
     private Command(String asString) {
+        this(asString, false);
+    }
+
+    /**
+     * Setzt asString auf den Wert, der vom jeweiligen Enum uebergeben wird, und
+     * legt fest, ob der Befehl die Teile nur liest.
+     * 
+     * @param asString Darstellung des Befehls als String.
+     * @param readOnly true, falls der Befehl keine Teile veraendert.
+     */
+    private Command(String asString, boolean readOnly) {
         this.asString = asString;
+        this.readOnly = readOnly;
     }
 
     /**
@@ -219,7 +484,18 @@ public enum Command {
      * @return true, wenn das Programm weiterlaufen soll, sonst false.
      */
     public static boolean isStillRunning() {
-        return stillRunning;
+        return STILL_RUNNING.get();
+    }
+
+    /**
+     * Gibt true zurueck, wenn der Befehl nur die veroeffentlichte Version der Teile
+     * liest und daher ohne Sperre neben anderen Befehlen ausgefuehrt werden darf,
+     * sonst false.
+     * 
+     * @return true, falls der Befehl keine Teile veraendert, sonst false.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
     }
 
     /**
@@ -241,20 +517,53 @@ public enum Command {
      * @return null, falls kein Enum gefunden wurde, sonst das passende Enum.
      */
     public static Command stringToEnum(String command) {
-        Command toReturn = ILLEGAL_COMMAND;
-        for (Command type : Command.values()) {
-            if (type.getString().equals(command)) {
-                toReturn = type;
+        return stringToEnum(command, 0, command.length());
+    }
+
+    /**
+     * Sucht wie stringToEnum(String) das passende Enum, vergleicht aber nur einen
+     * Ausschnitt eines Strings, ohne diesen zu kopieren. Verglichen wird nur mit
+     * den Befehlen, die mit demselben Zeichen beginnen und gleich lang sind.
+     * 
+     * @param line  String, in dem der Befehl steht.
+     * @param start Stelle, an der der Befehl beginnt.
+     * @param end   Stelle nach dem letzten Zeichen des Befehls.
+     * @return ILLEGAL_COMMAND, falls kein Enum gefunden wurde, sonst das passende
+     *         Enum.
+     */
+    public static Command stringToEnum(String line, int start, int end) {
+        if (start == end || line.charAt(start) >= BY_FIRST_CHARACTER.length) {
+            return ILLEGAL_COMMAND;
+        }
+        for (Command type : BY_FIRST_CHARACTER[line.charAt(start)]) {
+            if (type.asString.length() == end - start && line.startsWith(type.asString, start)) {
+                return type;
             }
         }
-        return toReturn;
+        return ILLEGAL_COMMAND;
     }
 
     /**
-     * Abstrakte Methode, die die Ausfuehrung der einzelnen Befehle darstellen soll.
-     * Der Uebersichtlichkeit und Einheitlichkeit wegen ist es gewollt, dass alle
+     * Fuehrt den Befehl mit den Parametern einer geprueften Eingabe aus. Nur
+     * Befehle, die mehr als die Teile und das erste Teil der Eingabe brauchen,
+     * ueberschreiben diese Methode.
+     * 
+     * @param allParts Alle Teile, die im System existieren.
+     * @param input    gepruefte Eingabe.
+     * @throws IllegalArgumentException falls der Befehl nicht erfolgreich
+     *                                  ausgefuehrt wurde.
+     */
+    public void execute(PartList allParts, ValidateInput input) throws IllegalArgumentException {
+        execute(allParts, input.getParts(), input.getFirstPartName());
+    }
+
+    /**
+     * Methode, die die Ausfuehrung der einzelnen Befehle darstellen soll. Der
+     * Uebersichtlichkeit und Einheitlichkeit wegen ist es gewollt, dass alle
      * execute Funktionen die selbe Signatur haben, obwohl nicht fuer alle Befehle
-     * alle Parameter benoetigt werden.
+     * alle Parameter benoetigt werden. Befehle, die stattdessen
+     * execute(PartList, ValidateInput) ueberschreiben, brauchen diese Methode
+     * nicht, sie wird fuer sie nie aufgerufen.
      * 
      * @param allParts      Alle Teile, die im System existieren.
      * @param newParts      Neue Teile, die verarbeitet werden sollen.
@@ -263,6 +572,8 @@ public enum Command {
      * @throws IllegalArgumentException falls der Befehl nicht erfolgreich
      *                                  ausgefuehrt wurde.
      */
-    public abstract void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly)
-            throws IllegalArgumentException;
+    public void execute(PartList allParts, Map<String, Integer> newParts, String firstAssembly)
+            throws IllegalArgumentException {
+        throw new UnsupportedOperationException(asString);
+    }
 }
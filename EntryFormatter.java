@@ -0,0 +1,86 @@
+package edu.kit.informatik;
+
+import java.math.BigInteger;
+
+/**
+ * Schreibt Eintraege der Form "Name:Anzahl" getrennt durch ";" direkt in einen
+ * StringBuilder. Dabei werden keine Strings fuer einzelne Eintraege erzeugt und
+ * das Trennzeichen wird nur zwischen zwei Eintraegen geschrieben, muss am Ende
+ * also nicht wieder entfernt werden.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class EntryFormatter {
+    private StringBuilder target;
+    private boolean empty = true;
+
+    /**
+     * Erstellt einen Formatierer, der an das Ende des gegebenen StringBuilders
+     * schreibt.
+     *
+     * @param target StringBuilder, in den geschrieben wird.
+     */
+    public EntryFormatter(StringBuilder target) {
+        this.target = target;
+    }
+
+    /**
+     * Haengt einen Eintrag mit Namen und Anzahl an.
+     *
+     * @param name   Name des Teils.
+     * @param amount Anzahl des Teils.
+     */
+    public void add(String name, int amount) {
+        startEntry();
+        target.append(name).append(':').append(amount);
+    }
+
+    /**
+     * Haengt einen Eintrag mit Namen und einer Anzahl an, die ein Integer, ein
+     * Long oder ein BigInteger sein kann. Nur ein BigInteger wird dabei in einen
+     * String umgewandelt.
+     *
+     * @param name   Name des Teils.
+     * @param amount Anzahl des Teils.
+     */
+    public void add(String name, Number amount) {
+        startEntry();
+        target.append(name).append(':');
+        if (amount instanceof BigInteger) {
+            target.append(amount);
+        } else {
+            target.append(amount.longValue());
+        }
+    }
+
+    /**
+     * Haengt einen Eintrag mit Namen und beliebigem Wert an.
+     *
+     * @param name  Name des Teils.
+     * @param value Wert, der hinter dem Namen steht.
+     */
+    public void add(String name, String value) {
+        startEntry();
+        target.append(name).append(':').append(value);
+    }
+
+    /**
+     * Gibt true zurueck, wenn noch kein Eintrag geschrieben wurde, sonst false.
+     *
+     * @return true, wenn noch kein Eintrag geschrieben wurde, sonst false.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Schreibt das Trennzeichen, falls schon ein Eintrag geschrieben wurde.
+     */
+    private void startEntry() {
+        if (!empty) {
+            target.append(';');
+        }
+        empty = false;
+    }
+}
@@ -0,0 +1,289 @@
+package edu.kit.informatik;
+
+/**
+ * Enum beinhaltet alle Arten von Fehlermeldungen, die ein Befehl ausgeben kann.
+ * Jede Art hat eine feste Nummer, unter der Statistics sie zaehlt, ohne die
+ * Meldung dafuer ansehen zu muessen. Ein * in der Meldung steht fuer einen
+ * veraenderlichen Teil, etwa den Namen eines Teils, der beim Erzeugen der
+ * Exception eingesetzt wird.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public enum ErrorType {
+    /**
+     * Der Befehl existiert nicht.
+     */
+    UNKNOWN_COMMAND("command doesn't exist!"),
+    /**
+     * Das Journal kann nicht geoeffnet werden.
+     */
+    JOURNAL_NOT_OPENED("the journal can't be opened!"),
+    /**
+     * Das Journal kann nicht gelesen werden.
+     */
+    JOURNAL_NOT_READ("the journal can't be read!"),
+    /**
+     * Ein Datensatz des Journals kann nicht wiederhergestellt werden.
+     */
+    JOURNAL_NOT_REPLAYED("the journal can't be replayed!"),
+    /**
+     * Das Journal kann nicht geschrieben werden.
+     */
+    JOURNAL_NOT_WRITTEN("the journal can't be written!"),
+    /**
+     * Ein Datensatz des Journals hat einen unbekannten Typ.
+     */
+    UNKNOWN_RECORD("unknown record type!"),
+    /**
+     * Eine Zahl im Journal ist ungueltig.
+     */
+    INVALID_JOURNAL_NUMBER("invalid number in the journal!"),
+    /**
+     * Ein Teil soll mehr als 1000 mal in einer Baugruppe vorkommen.
+     */
+    TOO_MANY_PIECES("it's not possible to add more than 1000 pieces of one part to an assembly!"),
+    /**
+     * Eine Anzahl in einer Liste von Teilen ist kleiner als 1.
+     */
+    AMOUNT_BELOW_ONE("the amount of all parts must at least be 1!"),
+    /**
+     * Die bei addPart angegebene Anzahl ist kleiner als 1.
+     */
+    ADDED_AMOUNT_BELOW_ONE("the amount of the part you are trying to add must be at least 1!"),
+    /**
+     * Die bei removePart angegebene Anzahl ist kleiner als 1.
+     */
+    REMOVED_AMOUNT_BELOW_ONE("the amount of the part you are trying to remove must be at least 1!"),
+    /**
+     * Das Teil, von dem etwas abgezogen werden soll, kommt nicht in der Baugruppe
+     * vor.
+     */
+    PART_NOT_CONTAINED("the given assembly does not contain the part *!"),
+    /**
+     * Von einem Teil soll mehr abgezogen werden, als in der Baugruppe vorkommt.
+     */
+    AMOUNT_TOO_LOW("the amount of Part * in the given assembly is lower than the given amount!"),
+    /**
+     * Die aufzuloesende Baugruppe existiert nicht.
+     */
+    EXPLODED_ASSEMBLY_NOT_FOUND("the given assembly doesn not exist!"),
+    /**
+     * Die Baugruppe existiert nicht.
+     */
+    ASSEMBLY_NOT_FOUND("the given assembly doesn't exist!"),
+    /**
+     * Bei getAssemblies wurde ein Einzelteil angegeben.
+     */
+    ASSEMBLIES_OF_COMPONENT("you can only get assemblies of another assembly not a component!"),
+    /**
+     * Bei getComponents wurde ein Einzelteil angegeben.
+     */
+    COMPONENTS_OF_COMPONENT("you can only get components of an assembly not a component!"),
+    /**
+     * Die neuen Teile von addPart wuerden einen Zyklus erzeugen.
+     */
+    PARTS_CREATE_CYCLE("the new parts would create a cycle!"),
+    /**
+     * Die neue Baugruppe wuerde einen Zyklus erzeugen.
+     */
+    ASSEMBLY_CREATES_CYCLE("the new assembly would create a cycle!"),
+    /**
+     * Die neue Baugruppe existiert schon.
+     */
+    ASSEMBLY_EXISTS("the given assembly already exists!"),
+    /**
+     * Bei removeAssembly wurde ein Einzelteil angegeben.
+     */
+    COMPONENT_REMOVED("only assemblies can be reomved!"),
+    /**
+     * Das Teil existiert nicht.
+     */
+    PART_NOT_FOUND("part doesn't exist!"),
+    /**
+     * Ein Lagerbestand bei mrp ist negativ.
+     */
+    NEGATIVE_STOCK("the stock of a part can't be negative!"),
+    /**
+     * save wurde waehrend einer Transaktion aufgerufen.
+     */
+    SAVE_IN_TRANSACTION("a snapshot can't be saved during a transaction!"),
+    /**
+     * load wurde waehrend einer Transaktion aufgerufen.
+     */
+    LOAD_IN_TRANSACTION("a snapshot can't be loaded during a transaction!"),
+    /**
+     * Der Snapshot kann nicht geschrieben werden.
+     */
+    SNAPSHOT_NOT_WRITTEN("the snapshot can't be written!"),
+    /**
+     * Der Snapshot kann nicht gelesen werden.
+     */
+    SNAPSHOT_NOT_READ("the snapshot can't be read!"),
+    /**
+     * Die Datei ist kein gueltiger Snapshot.
+     */
+    INVALID_SNAPSHOT("the file is not a valid snapshot!"),
+    /**
+     * begin wurde waehrend einer Transaktion aufgerufen.
+     */
+    TRANSACTION_RUNNING("a transaction is already running!"),
+    /**
+     * commit oder rollback wurde ohne Transaktion aufgerufen.
+     */
+    NO_TRANSACTION("no transaction is running!"),
+    /**
+     * Die Aenderungen einer Transaktion erzeugen einen Zyklus.
+     */
+    TRANSACTION_CREATES_CYCLE("the changes would create a cycle, the transaction was rolled back!"),
+    /**
+     * Ein Name enthaelt andere Zeichen als a-z oder A-Z.
+     */
+    INVALID_NAME("at least one character in the name is not between a-z or A-Z!"),
+    /**
+     * Die Parameter von addPart enthalten nicht genau ein Pluszeichen.
+     */
+    PLUS_SIGNS("the input contains either no or more than one plus signs!"),
+    /**
+     * Die Parameter von removePart enthalten nicht genau ein Minuszeichen.
+     */
+    MINUS_SIGNS("the input contains either no or more than one minus signs!"),
+    /**
+     * Die Parameter von addAssembly enthalten nicht genau ein Gleichheitszeichen.
+     */
+    EQUAL_SIGNS("the input contains either no or more than one equal signs!"),
+    /**
+     * Die Parameter von contains enthalten nicht genau einen Doppelpunkt.
+     */
+    COLONS("the input contains either no or more than one colons!"),
+    /**
+     * Die Parameter von mrp enthalten mehr als ein Minuszeichen.
+     */
+    MINUS_SIGN("the input contains more than one minus sign!"),
+    /**
+     * Ein Teil einer Liste hat nicht die Form Anzahl:Name.
+     */
+    INVALID_PART_FORMAT("the format of at least one part and it's amount is incorrect."),
+    /**
+     * Ein Name kommt in einer Liste von Teilen doppelt vor.
+     */
+    DUPLICATE_NAME("at least one name of the parts appear twice!"),
+    /**
+     * Eine Anzahl ist keine Zahl.
+     */
+    AMOUNT_NOT_A_NUMBER("the amount of at least one part is not a number!"),
+    /**
+     * Ein Befehl erwartet einen Namen als Parameter.
+     */
+    NAME_EXPECTED("expected a name as parameter, no parameter is given!"),
+    /**
+     * Ein Befehl erwartet einen Pfad als Parameter.
+     */
+    PATH_EXPECTED("expected a path as parameter, no parameter is given!"),
+    /**
+     * Ein Befehl ohne Parameter wurde mit Parametern aufgerufen.
+     */
+    PARAMETER_NOT_ALLOWED("no parameter allowed for the *-command!"),
+    /**
+     * Ein Befehl mit Parametern wurde ohne Parameter aufgerufen.
+     */
+    PARAMETERS_EXPECTED("parameters were expected but none are given!"),
+    /**
+     * Die Eingabe endet mit einem Trennzeichen.
+     */
+    INVALID_LAST_CHARACTER("the last character of the input can't be *"),
+    /**
+     * Die Eingabe enthaelt mehr als ein Leerzeichen.
+     */
+    TOO_MANY_BLANKS("too many blanks, wrong format!"),
+    /**
+     * Jede andere Exception, etwa ein ungueltiger Pfad.
+     */
+    OTHER("*");
+
+    private final String category;
+    private final String prefix;
+    private final String suffix;
+
+    /**
+     * Konstruktor, welcher die Meldung der Fehlerart setzt.
+     *
+     * @param category Meldung, in der ein * fuer einen veraenderlichen Teil
+     *                 stehen kann.
+     */
+    ErrorType(String category) {
+        this.category = category;
+        int placeholder = category.indexOf('*');
+        prefix = placeholder < 0 ? category : category.substring(0, placeholder);
+        suffix = placeholder < 0 ? "" : category.substring(placeholder + 1);
+    }
+
+    /**
+     * Gibt die Meldung zurueck, in der veraenderliche Teile durch * ersetzt sind.
+     *
+     * @return Meldung der Fehlerart.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Erzeugt eine Exception mit der Meldung dieser Fehlerart.
+     *
+     * @return Exception, die geworfen werden soll.
+     */
+    public Failure exception() {
+        return new Failure(this, category);
+    }
+
+    /**
+     * Erzeugt eine Exception mit der Meldung dieser Fehlerart, in der der
+     * veraenderliche Teil durch detail ersetzt ist.
+     *
+     * @param detail veraenderlicher Teil der Meldung, etwa der Name eines Teils.
+     * @return Exception, die geworfen werden soll.
+     */
+    public Failure exception(String detail) {
+        return new Failure(this, prefix + detail + suffix);
+    }
+
+    /**
+     * Gibt die Art einer Exception zurueck. Exceptions, die nicht mit exception
+     * erzeugt wurden, haben die Art OTHER.
+     *
+     * @param e Exception eines Befehls.
+     * @return Art der Exception.
+     */
+    public static ErrorType of(IllegalArgumentException e) {
+        return e instanceof Failure ? ((Failure) e).getType() : OTHER;
+    }
+
+    /**
+     * Exception eines fehlgeschlagenen Befehls, die ihre Fehlerart kennt.
+     */
+    public static class Failure extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final ErrorType type;
+
+        /**
+         * Erstellt eine Exception mit Fehlerart und fertiger Meldung.
+         *
+         * @param type    Art der Fehlermeldung.
+         * @param message auszugebende Meldung.
+         */
+        public Failure(ErrorType type, String message) {
+            super(message);
+            this.type = type;
+        }
+
+        /**
+         * Gibt die Art der Fehlermeldung zurueck.
+         *
+         * @return Art der Fehlermeldung.
+         */
+        public ErrorType getType() {
+            return type;
+        }
+    }
+}
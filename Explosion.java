@@ -0,0 +1,90 @@
+package edu.kit.informatik;
+
+import java.math.BigInteger;
+
+/**
+ * Ergebnis der vollstaendigen Aufloesung einer Baugruppe. Enthaelt fuer jedes
+ * direkt oder indirekt enthaltene Teil (Baugruppen und Einzelteile) dessen
+ * Nummer im PartGraph und wie oft es insgesamt in der Baugruppe vorkommt. Ein
+ * Objekt dieser Klasse wird nach dem Erstellen nicht mehr veraendert.
+ *
+ * <p>Die Gesamtanzahlen sind long-Werte. Nur Gesamtanzahlen, die nicht in ein
+ * long passen, stehen zusaetzlich als BigInteger an derselben Stelle.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class Explosion {
+    private int[] ids;
+    private long[] amounts;
+    private BigInteger[] largeAmounts;
+
+    /**
+     * Erstellt ein Ergebnis aus den Nummern der enthaltenen Teile und deren
+     * Gesamtanzahl. Alle Arrays muessen gleich lang sein.
+     *
+     * @param ids          Nummern der enthaltenen Teile.
+     * @param amounts      Gesamtanzahl der Teile an der jeweils selben Stelle.
+     * @param largeAmounts Gesamtanzahlen, die nicht in ein long passen, an der
+     *                     jeweils selben Stelle, sonst null. Kann null sein, falls
+     *                     alle Gesamtanzahlen in ein long passen.
+     */
+    public Explosion(int[] ids, long[] amounts, BigInteger[] largeAmounts) {
+        this.ids = ids;
+        this.amounts = amounts;
+        this.largeAmounts = largeAmounts;
+    }
+
+    /**
+     * Gibt die Anzahl der enthaltenen Teile zurueck.
+     *
+     * @return Anzahl der enthaltenen Teile.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Gibt die Nummer des index-ten enthaltenen Teils zurueck.
+     *
+     * @param index Stelle des Teils.
+     * @return Nummer des Teils.
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gibt die Gesamtanzahl des index-ten enthaltenen Teils zurueck. Gilt nur,
+     * falls getLargeAmount fuer die Stelle null zurueckgibt.
+     *
+     * @param index Stelle des Teils.
+     * @return Gesamtanzahl des Teils.
+     */
+    public long getAmount(int index) {
+        return amounts[index];
+    }
+
+    /**
+     * Gibt die Gesamtanzahl des index-ten enthaltenen Teils zurueck, falls sie
+     * nicht in ein long passt.
+     *
+     * @param index Stelle des Teils.
+     * @return Gesamtanzahl als BigInteger oder null, falls getAmount gilt.
+     */
+    public BigInteger getLargeAmount(int index) {
+        return largeAmounts != null ? largeAmounts[index] : null;
+    }
+
+    /**
+     * Gibt die Gesamtanzahl des index-ten enthaltenen Teils als Long oder, falls
+     * sie nicht in ein long passt, als BigInteger zurueck.
+     *
+     * @param index Stelle des Teils.
+     * @return Gesamtanzahl des Teils.
+     */
+    public Number getTotal(int index) {
+        BigInteger largeAmount = getLargeAmount(index);
+        return largeAmount != null ? largeAmount : Long.valueOf(amounts[index]);
+    }
+}
@@ -0,0 +1,188 @@
+package edu.kit.informatik;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Speichert bereits berechnete Aufloesungen von Baugruppen, damit wiederholte
+ * Anfragen zu unveraenderten Baugruppen nicht neu berechnet werden muessen.
+ * Die Groesse des Caches wird ueber die Summe der Laengen aller gespeicherten
+ * Aufloesungen begrenzt. Wird die Grenze ueberschritten, werden die am
+ * laengsten nicht mehr verwendeten Eintraege entfernt (LRU).
+ *
+ * <p>Der Cache weiss nichts ueber die Struktur der Teile. Wer ein Teil
+ * veraendert, muss die Eintraege des Teils und aller Baugruppen, die es direkt
+ * oder indirekt enthalten, selbst entfernen.
+ *
+ * <p>Alle Methoden sind synchronisiert, da auch ein Lesezugriff die Reihenfolge
+ * der Eintraege veraendert und mehrere Anfragen gleichzeitig aufloesen koennen.
+ *
+ * <p>Jeder Eintrag merkt sich die Version des Graphen, auf der er berechnet
+ * wurde. Da ein Eintrag bei jeder Aenderung, die ihn betrifft, entfernt wird,
+ * gilt er von dieser Version an bis zur neuesten Version. Bevor ein Schreiber
+ * Eintraege entfernt, kuendigt er mit advance die naechste Version an. Danach
+ * werden Aufloesungen aelterer Versionen nicht mehr gespeichert, sodass kein
+ * veralteter Eintrag nach dem Entfernen wieder auftauchen kann.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class ExplosionCache {
+    /**
+     * Standardgrenze fuer die Summe der Laengen aller gespeicherten Aufloesungen.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1 << 20;
+
+    private Map<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true);
+    private long latest = 0;
+    private int maxSize;
+    private int size = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Erstellt einen leeren Cache mit der Standardgrenze.
+     */
+    public ExplosionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Erstellt einen leeren Cache mit der gegebenen Grenze.
+     *
+     * @param maxSize Grenze fuer die Summe der Laengen aller gespeicherten
+     *                Aufloesungen.
+     */
+    public ExplosionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gibt die gespeicherte Aufloesung einer Baugruppe in einer Version des
+     * Graphen zurueck oder null, falls keine gespeichert ist oder die
+     * gespeicherte erst in einer spaeteren Version berechnet wurde. Jeder Fund
+     * zaehlt als Treffer.
+     *
+     * @param id      Nummer der Baugruppe.
+     * @param version Version des Graphen, der gelesen wird.
+     * @return gespeicherte Aufloesung oder null.
+     */
+    public synchronized Explosion get(int id, long version) {
+        Entry entry = entries.get(id);
+        if (entry == null || entry.version > version) {
+            return null;
+        }
+        hits++;
+        return entry.explosion;
+    }
+
+    /**
+     * Speichert eine neu berechnete Aufloesung einer Baugruppe. Jede neu
+     * berechnete Aufloesung zaehlt als Fehlschlag. Entfernt danach so lange die
+     * am laengsten nicht verwendeten Eintraege, bis die Grenze wieder eingehalten
+     * wird. Aufloesungen einer aelteren als der neuesten Version werden nicht
+     * gespeichert.
+     *
+     * @param id        Nummer der Baugruppe.
+     * @param explosion Aufloesung der Baugruppe.
+     * @param version   Version des Graphen, auf der die Aufloesung berechnet
+     *                  wurde.
+     */
+    public synchronized void put(int id, Explosion explosion, long version) {
+        misses++;
+        if (version != latest) {
+            return;
+        }
+        remove(id);
+        entries.put(id, new Entry(explosion, version));
+        size += explosion.size() + 1;
+
+        Iterator<Entry> iter = entries.values().iterator();
+        while (size > maxSize && iter.hasNext()) {
+            size -= iter.next().explosion.size() + 1;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Kuendigt eine neue Version des Graphen an. Muss aufgerufen werden, bevor
+     * die Eintraege der durch sie veraenderten Teile entfernt werden.
+     *
+     * @param version Nummer der naechsten Version.
+     */
+    public synchronized void advance(long version) {
+        latest = Math.max(latest, version);
+    }
+
+    /**
+     * Entfernt die gespeicherte Aufloesung einer Baugruppe, falls vorhanden.
+     *
+     * @param id Nummer der Baugruppe.
+     */
+    public synchronized void remove(int id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            size -= removed.explosion.size() + 1;
+        }
+    }
+
+    /**
+     * Entfernt alle gespeicherten Aufloesungen. Die Zaehler fuer Treffer und
+     * Fehlschlaege bleiben erhalten.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Gibt true zurueck, wenn keine Aufloesung gespeichert ist, sonst false.
+     *
+     * @return true, wenn der Cache leer ist, sonst false.
+     */
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Gibt die Anzahl der gespeicherten Aufloesungen zurueck.
+     *
+     * @return Anzahl der gespeicherten Aufloesungen.
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gibt zurueck, wie oft eine gespeicherte Aufloesung verwendet wurde, sei es
+     * direkt fuer eine Anfrage oder als Teilergebnis einer anderen Aufloesung.
+     *
+     * @return Anzahl der Treffer.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gibt zurueck, wie oft eine Aufloesung neu berechnet werden musste.
+     *
+     * @return Anzahl der Fehlschlaege.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Eine gespeicherte Aufloesung mit der Version, auf der sie berechnet wurde.
+     */
+    private static class Entry {
+        private final Explosion explosion;
+        private final long version;
+
+        private Entry(Explosion explosion, long version) {
+            this.explosion = explosion;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package edu.kit.informatik;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Sammelt die Events, die das Programm an den Java Flight Recorder meldet. Alle
+ * Events sind standardmaessig ausgeschaltet und werden erst aufgezeichnet, wenn
+ * sie in den Einstellungen einer Aufzeichnung eingeschaltet werden, etwa mit
+ * -XX:StartFlightRecording:+edu.kit.informatik.Command#enabled=true. Solange
+ * ein Event ausgeschaltet ist, kostet es nur das Anlegen eines Objekts, das
+ * der JIT-Compiler in der Regel entfernt.
+ *
+ * <p>Alle Events werden nach dem gleichen Muster verwendet: Event anlegen,
+ * begin aufrufen, die Arbeit erledigen, end aufrufen und nur falls
+ * shouldCommit true zurueckgibt die Felder setzen und commit aufrufen. Felder,
+ * deren Berechnung etwas kostet, werden so nur fuer aufgezeichnete Events
+ * berechnet.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public final class FlightEvents {
+    private static final String CATEGORY = "Material Requirements";
+
+    /**
+     * Verhindert, dass die Sammlung instanziiert wird.
+     */
+    private FlightEvents() {
+    }
+
+    /**
+     * Ausfuehrung eines bereits geprueften Befehls.
+     */
+    @Name("edu.kit.informatik.Command")
+    @Label("Command")
+    @Description("Execution of a validated command")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static class CommandEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("Part")
+        String part;
+
+        @Label("Error")
+        @Description("Error message, or null if the command succeeded")
+        String error;
+
+        @Label("Nodes Visited")
+        long nodes;
+
+        @Label("Edges Followed")
+        long edges;
+    }
+
+    /**
+     * Pruefung einer eingegebenen Zeile.
+     */
+    @Name("edu.kit.informatik.Validation")
+    @Label("Validation")
+    @Description("Validation of an input line")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static class ValidationEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("Line Length")
+        int length;
+
+        @Label("Parts")
+        @Description("Number of parts given as parameters")
+        int parts;
+
+        @Label("Error")
+        @Description("Error message, or null if the line is valid")
+        String error;
+    }
+
+    /**
+     * Aufloesung einer Baugruppe.
+     */
+    @Name("edu.kit.informatik.Explosion")
+    @Label("Explosion")
+    @Description("Explosion of an assembly into all direct and indirect parts")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static class ExplosionEvent extends Event {
+        @Label("Assembly")
+        String assembly;
+
+        @Label("Result Size")
+        @Description("Number of direct and indirect parts")
+        int size;
+
+        @Label("Cached")
+        @Description("Whether the explosion was taken from the cache")
+        boolean cached;
+
+        @Label("Nodes Visited")
+        int nodes;
+    }
+
+    /**
+     * Pruefung, ob neue Kanten einen Zyklus erzeugen.
+     */
+    @Name("edu.kit.informatik.CycleCheck")
+    @Label("Cycle Check")
+    @Description("Check whether new edges create a cycle")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static class CycleCheckEvent extends Event {
+        @Label("Assembly")
+        @Description("Assembly of the new edge, or null if the whole order was rebuilt")
+        String assembly;
+
+        @Label("Sub-Part")
+        @Description("Sub-part of the new edge, or null if the whole order was rebuilt")
+        String subPart;
+
+        @Label("Nodes Visited")
+        int nodes;
+
+        @Label("Cycle")
+        boolean cycle;
+    }
+}
@@ -2,38 +2,41 @@ package edu.kit.informatik;
 
 /**
  * Eine eingegebene Zeile wird hier eingelesen, ohne sie jedoch auf Korrektheit
- * zu pruefen oder sie weiterzuverarbeiten. Die Zeile wird lediglich am ersten
- * Leerzeichen aufgeteilt, falls dieses vorhanden ist.
+ * zu pruefen oder sie weiterzuverarbeiten. Die Zeile wird dabei genau einmal
+ * durchlaufen, um die Leerzeichen zu zaehlen und die Stelle des ersten
+ * Leerzeichens zu merken. Befehl und Rest werden nicht als eigene Strings
+ * kopiert, sondern nur ueber ihre Grenzen in der Zeile beschrieben.
  * 
  * @author Daniel Vollmer
  * @version 2.0
  *
  */
 public class Input {
-    private String inputString = "";
-    private String command = "";
-    private String rest = "";
+    private String inputString;
+    private int blankCount = 0;
+    private int firstBlank = -1;
 
     /**
      * Liest eine Zeile ein und splitted sie in den Befehl und den Rest auf.
      */
     public Input() {
-        inputString = Terminal.readLine();
-        splitString();
+        this(Terminal.readLine());
     }
 
     /**
-     * Splitted einen String an den Leerzeichen. Setzt command auf den Teil vor dem
-     * ersten Leerzeichen und rest auf den Rest, aber ohne Leerzeichen.
+     * Splitted eine bereits eingelesene Zeile in den Befehl und den Rest auf.
+     * 
+     * @param inputString Zeile, die aufgeteilt werden soll.
      */
-    private void splitString() {
-        if (containsBlank() && !startsWithBlank() && inputString.length() > 0) {
-            command = inputString.split(" ")[0];
-            for (int i = 1; i < inputString.split(" ").length; i++) {
-                rest += inputString.split(" ")[i];
+    public Input(String inputString) {
+        this.inputString = inputString;
+        for (int i = 0; i < inputString.length(); i++) {
+            if (inputString.charAt(i) == ' ') {
+                if (blankCount == 0) {
+                    firstBlank = i;
+                }
+                blankCount++;
             }
-        } else if (inputString.length() > 0 && !startsWithBlank()) {
-            command = inputString;
         }
     }
 
@@ -44,25 +47,7 @@ public class Input {
      * @return true falls erstes Zeichen Leerzeichen, sonst false.
      */
     public boolean startsWithBlank() {
-        if (inputString.startsWith(" ")) {
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Gibt true zurueck, falls letztes Zeichen des Input String ein Leerzeichen
-     * ist, sonst false.
-     * 
-     * @return true, falls letzten Zeichen Leerzeichen, sonst false
-     */
-    public boolean lastCharBlank() {
-        if (inputString.length() > 0) {
-            if (inputString.substring(inputString.length() - 1).equals(" ")) {
-                return true;
-            }
-        }
-        return false;
+        return firstBlank == 0;
     }
 
     /**
@@ -71,10 +56,7 @@ public class Input {
      * @return true, falls Leerzeichen enthalten, sonst false
      */
     public boolean containsBlank() {
-        if (inputString.indexOf(" ") >= 0) {
-            return true;
-        }
-        return false;
+        return blankCount > 0;
     }
 
     /**
@@ -84,33 +66,39 @@ public class Input {
      * @return true, falls mehr als ein Leerzeichen enthalten, sonst false
      */
     public boolean containsMoreThanOneBlank() {
-        int count = 0;
-        for (int i = 0; i < inputString.length(); i++) {
-            if (inputString.charAt(i) == ' ') {
-                count++;
-            }
-        }
-        if (count >= 2) {
-            return true;
-        }
-        return false;
+        return blankCount >= 2;
+    }
+
+    /**
+     * Gibt den Befehl zurueck, also den Teil vor dem ersten Leerzeichen oder die
+     * ganze Zeile, falls sie kein Leerzeichen enthaelt.
+     * 
+     * @return Befehl der Zeile oder ILLEGAL_COMMAND.
+     */
+    public Command getCommand() {
+        int end = containsBlank() ? firstBlank : inputString.length();
+        return Command.stringToEnum(inputString, 0, end);
     }
 
     /**
-     * Gibt command zurueck.
+     * Gibt die ganze eingelesene Zeile zurueck. Der Rest ist der Bereich von
+     * getRestStart() bis zum Ende dieser Zeile.
      * 
-     * @return command
+     * @return die eingelesene Zeile.
      */
-    public String getCommand() {
-        return command;
+    public String getLine() {
+        return inputString;
     }
 
     /**
-     * Gibt rest zurueck.
+     * Gibt die Stelle in der Zeile zurueck, an der der Rest beginnt, also die
+     * Stelle nach dem ersten Leerzeichen. Beginnt die Zeile mit einem Leerzeichen
+     * oder enthaelt sie keines, ist der Rest leer. Der Rest ist nur dann
+     * zusammenhaengend, wenn die Zeile hoechstens ein Leerzeichen enthaelt.
      * 
-     * @return rest
+     * @return Stelle, an der der Rest beginnt.
      */
-    public String getRest() {
-        return rest;
+    public int getRestStart() {
+        return firstBlank > 0 ? firstBlank + 1 : inputString.length();
     }
 }
@@ -0,0 +1,92 @@
+package edu.kit.informatik;
+
+import java.util.Arrays;
+
+/**
+ * Einfache, wachsende Liste von int-Werten. Wird bei Traversierungen des
+ * PartGraph als Liste oder Stapel verwendet, damit die Nummern der Teile nicht
+ * in Integer-Objekte verpackt werden muessen.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class IntList {
+    private int[] values = new int[16];
+    private int size = 0;
+
+    /**
+     * Haengt einen Wert an das Ende der Liste an.
+     *
+     * @param value anzuhaengender Wert.
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Gibt den Wert an der gegebenen Stelle zurueck.
+     *
+     * @param index Stelle des Werts.
+     * @return Wert an der Stelle index.
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Ueberschreibt den Wert an der gegebenen Stelle.
+     *
+     * @param index Stelle des Werts.
+     * @param value neuer Wert.
+     */
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    /**
+     * Entfernt den letzten Wert der Liste und gibt ihn zurueck. Damit kann die
+     * Liste als Stapel verwendet werden.
+     *
+     * @return der bisher letzte Wert.
+     */
+    public int removeLast() {
+        return values[--size];
+    }
+
+    /**
+     * Gibt die Anzahl der Werte in der Liste zurueck.
+     *
+     * @return Anzahl der Werte.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gibt true zurueck, wenn die Liste keine Werte enthaelt, sonst false.
+     *
+     * @return true, wenn die Liste leer ist, sonst false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Entfernt alle Werte aus der Liste, ohne den Speicher freizugeben.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gibt die Werte der Liste als neues Array zurueck.
+     *
+     * @return Kopie der Werte.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
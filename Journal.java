@@ -0,0 +1,723 @@
+package edu.kit.informatik;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Schreibt jede erfolgreiche Aenderung am System als Datensatz an das Ende eines
+ * Journals, sodass alle Teile nach einem Absturz wiederhergestellt werden
+ * koennen.
+ *
+ * <p>Zu einem Basispfad gehoeren die Dateien "basis.N.snapshot" und
+ * "basis.N.journal". Das Journal der Generation N enthaelt alle Aenderungen
+ * nach dem Snapshot der Generation N, fuer die Generation 0 gibt es keinen
+ * Snapshot. Wird das Journal zu gross, beginnt eine neue Generation: Die
+ * folgenden Aenderungen gehen in ein neues Journal, der aktuelle Stand wird in
+ * einem eigenen Thread als Snapshot geschrieben und erst danach werden die
+ * Dateien der alten Generation geloescht. Bei einem Absturz dazwischen wird der
+ * alte Snapshot mit beiden Journalen geladen.
+ *
+ * <p>Jeder Datensatz besteht aus seiner Laenge (int), seiner CRC32-Pruefsumme
+ * (int) und den Daten: dem Typ (byte) gefolgt von Namen (Laenge als Varint und
+ * ISO-8859-1 Bytes) und Anzahlen (Varint). Ein unvollstaendiger letzter
+ * Datensatz wird beim Wiederherstellen abgeschnitten.
+ *
+ * <p>Die Datensaetze werden zunaechst nur im Speicher gesammelt. Ein eigener
+ * Thread schreibt alle bis dahin gesammelten Datensaetze am Stueck und wartet
+ * nur einmal, bis sie auf dem Datentraeger liegen (Group Commit). Mit sync wird
+ * gewartet, bis alle bisherigen Datensaetze geschrieben sind, bevor deren
+ * Ergebnis ausgegeben wird.
+ *
+ * <p>Zwischen begin und commit werden die Datensaetze einer Transaktion
+ * zurueckgehalten und bei commit als ein einziger Datensatz geschrieben, der
+ * die einzelnen Datensaetze samt Laenge und Pruefsumme enthaelt. Da dieser nur
+ * vollstaendig oder gar nicht wiederhergestellt wird, bleibt eine Transaktion
+ * auch nach einem Absturz atomar.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class Journal {
+    /**
+     * Groesse eines Journals in Bytes, ab der eine neue Generation begonnen wird.
+     */
+    private static final long COMPACT_SIZE = 1 << 24;
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte ADD_ASSEMBLY = 1;
+    private static final byte REMOVE_ASSEMBLY = 2;
+    private static final byte ADD_PART = 3;
+    private static final byte REMOVE_PART = 4;
+    private static final byte ADD_COMPONENT = 5;
+    private static final byte TRANSACTION = 6;
+    private static final byte RECLAIM = 7;
+
+    private final Path directory;
+    private final String baseName;
+    private final Object lock = new Object();
+
+    private int generation;
+    private int snapshotGeneration = -1;
+    private int firstJournalGeneration;
+    private long size;
+    private FileChannel channel;
+
+    private byte[] record = new byte[64];
+    private int recordSize;
+
+    private byte[] staged;
+    private int stagedSize;
+
+    private byte[] pending = new byte[1 << 16];
+    private int pendingSize;
+    private byte[] writing = new byte[1 << 16];
+    private long appended;
+    private long durable;
+    private boolean closed;
+    private IOException failure;
+
+    private Thread writer;
+    private Thread compactor;
+
+    /**
+     * Sucht die Dateien zu einem Basispfad und bestimmt, welcher Snapshot und
+     * welche Journale beim Wiederherstellen gelesen werden muessen. Geschrieben
+     * wird erst nach einem Aufruf von open.
+     *
+     * @param path Basispfad der Dateien.
+     * @throws IllegalArgumentException falls das Verzeichnis nicht gelesen werden
+     *                                  kann.
+     */
+    public Journal(String path) throws IllegalArgumentException {
+        Path base = Paths.get(path).toAbsolutePath();
+        directory = base.getParent();
+        baseName = base.getFileName().toString();
+
+        int highest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int journalGeneration = parseGeneration(name, JOURNAL_SUFFIX);
+                int fileSnapshot = parseGeneration(name, SNAPSHOT_SUFFIX);
+                highest = Math.max(highest, Math.max(journalGeneration, fileSnapshot));
+                snapshotGeneration = Math.max(snapshotGeneration, fileSnapshot);
+            }
+        } catch (IOException e) {
+            throw ErrorType.JOURNAL_NOT_OPENED.exception();
+        }
+        generation = highest;
+        firstJournalGeneration = Math.max(snapshotGeneration, 0);
+    }
+
+    /**
+     * Gibt den Pfad des neuesten Snapshots zurueck, von dem aus die Journale
+     * wiederhergestellt werden.
+     *
+     * @return Pfad des Snapshots oder null, falls es keinen gibt.
+     */
+    public String getSnapshotPath() {
+        return snapshotGeneration < 0 ? null : snapshotPath(snapshotGeneration).toString();
+    }
+
+    /**
+     * Fuehrt alle Aenderungen aus den Journalen ab dem neuesten Snapshot erneut
+     * aus. Die Teile muessen zuvor auf den Stand des Snapshots gebracht worden
+     * sein.
+     *
+     * @param parts Teile, auf die die Aenderungen angewendet werden.
+     * @throws IllegalArgumentException falls ein Journal nicht gelesen oder eine
+     *                                  Aenderung nicht ausgefuehrt werden kann.
+     */
+    public void replay(PartList parts) throws IllegalArgumentException {
+        for (int current = firstJournalGeneration; current <= generation; current++) {
+            Path file = journalPath(current);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            byte[] data;
+            try {
+                data = Files.readAllBytes(file);
+            } catch (IOException e) {
+                throw ErrorType.JOURNAL_NOT_READ.exception();
+            }
+
+            int position = 0;
+            CRC32 checksum = new CRC32();
+            while (data.length - position >= HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.wrap(data, position, HEADER_SIZE);
+                int length = header.getInt();
+                int expected = header.getInt();
+                if (length < 1 || length > data.length - position - HEADER_SIZE) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(data, position + HEADER_SIZE, length);
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+                try {
+                    apply(ByteBuffer.wrap(data, position + HEADER_SIZE, length), parts);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw ErrorType.JOURNAL_NOT_REPLAYED.exception();
+                }
+                position += HEADER_SIZE + length;
+            }
+            if (current == generation) {
+                size = position;
+            }
+        }
+    }
+
+    /**
+     * Oeffnet das Journal der aktuellen Generation zum Anhaengen, schneidet einen
+     * unvollstaendigen letzten Datensatz ab und startet den Thread, der die
+     * Datensaetze schreibt.
+     *
+     * @throws IllegalArgumentException falls das Journal nicht geoeffnet werden
+     *                                  kann.
+     */
+    public void open() throws IllegalArgumentException {
+        try {
+            channel = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(size);
+            channel.position(size);
+        } catch (IOException e) {
+            throw ErrorType.JOURNAL_NOT_OPENED.exception();
+        }
+        writer = new Thread(this::writeRecords, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Haengt das Hinzufuegen einer Baugruppe an das Journal an.
+     *
+     * @param name     Name der Baugruppe.
+     * @param subParts Sub-Teile der Baugruppe und deren Anzahl.
+     */
+    public void writeAddAssembly(String name, Map<String, Integer> subParts) {
+        beginRecord(ADD_ASSEMBLY);
+        putName(name);
+        putVarInt(subParts.size());
+        for (Map.Entry<String, Integer> entry : subParts.entrySet()) {
+            putName(entry.getKey());
+            putVarInt(entry.getValue());
+        }
+        commitRecord();
+    }
+
+    /**
+     * Haengt das Entfernen einer Baugruppe an das Journal an.
+     *
+     * @param name Name der Baugruppe.
+     */
+    public void writeRemoveAssembly(String name) {
+        beginRecord(REMOVE_ASSEMBLY);
+        putName(name);
+        commitRecord();
+    }
+
+    /**
+     * Haengt das Erhoehen der Anzahl eines Sub-Teils an das Journal an.
+     *
+     * @param assemblyName Name der Baugruppe.
+     * @param amount       Zahl, um die die Anzahl erhoeht wurde.
+     * @param subPartName  Name des Sub-Teils.
+     */
+    public void writeAddPart(String assemblyName, int amount, String subPartName) {
+        beginRecord(ADD_PART);
+        putName(assemblyName);
+        putVarInt(amount);
+        putName(subPartName);
+        commitRecord();
+    }
+
+    /**
+     * Haengt das Vermindern der Anzahl eines Sub-Teils an das Journal an.
+     *
+     * @param assemblyName Name der Baugruppe.
+     * @param amount       Zahl, um die die Anzahl vermindert wurde.
+     * @param subPartName  Name des Sub-Teils.
+     */
+    public void writeRemovePart(String assemblyName, int amount, String subPartName) {
+        beginRecord(REMOVE_PART);
+        putName(assemblyName);
+        putVarInt(amount);
+        putName(subPartName);
+        commitRecord();
+    }
+
+    /**
+     * Haengt das Hinzufuegen eines Einzelteils an das Journal an. Dies ist nur
+     * noetig, wenn das Einzelteil von einem sonst fehlgeschlagenen Befehl im
+     * System hinterlassen wird.
+     *
+     * @param name Name des Einzelteils.
+     */
+    public void writeAddComponent(String name) {
+        beginRecord(ADD_COMPONENT);
+        putName(name);
+        commitRecord();
+    }
+
+    /**
+     * Haengt das Entfernen eines Teils an das Journal an, das im Kaskadenmodus
+     * entfernt wurde, weil es in keiner Baugruppe mehr vorkommt. Steht immer
+     * hinter dem Datensatz des Befehls, der das Teil freigegeben hat.
+     *
+     * @param name Name des Teils.
+     */
+    public void writeReclaim(String name) {
+        beginRecord(RECLAIM);
+        putName(name);
+        commitRecord();
+    }
+
+    /**
+     * Beginnt eine Transaktion. Alle folgenden Datensaetze werden bis zu commit
+     * oder rollback zurueckgehalten.
+     */
+    public void begin() {
+        staged = new byte[1 << 12];
+        stagedSize = 0;
+    }
+
+    /**
+     * Beendet eine Transaktion und haengt alle ihre Datensaetze als einen
+     * einzigen Datensatz an das Journal an.
+     */
+    public void commit() {
+        byte[] changes = staged;
+        staged = null;
+        if (stagedSize > 0) {
+            beginRecord(TRANSACTION);
+            putBytes(changes, stagedSize);
+            commitRecord();
+        }
+    }
+
+    /**
+     * Beendet eine Transaktion und verwirft alle ihre Datensaetze.
+     */
+    public void rollback() {
+        staged = null;
+    }
+
+    /**
+     * Wartet, bis alle bisher angehaengten Datensaetze auf dem Datentraeger
+     * liegen. Datensaetze, die waehrenddessen von anderen Befehlen angehaengt
+     * werden, werden gemeinsam mit diesen geschrieben.
+     *
+     * @throws UncheckedIOException falls das Journal nicht geschrieben werden
+     *                              konnte.
+     */
+    public void sync() {
+        boolean interrupted = false;
+        synchronized (lock) {
+            long target = appended;
+            while (durable < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("the journal can't be written!", failure);
+            }
+        }
+    }
+
+    /**
+     * Gibt true zurueck, wenn das Journal gross genug ist, um eine neue Generation
+     * zu beginnen, und gerade kein Snapshot geschrieben wird.
+     *
+     * @return true, falls compact aufgerufen werden sollte, sonst false.
+     */
+    public boolean needsCompaction() {
+        return size >= COMPACT_SIZE && (compactor == null || !compactor.isAlive());
+    }
+
+    /**
+     * Beginnt eine neue Generation. Alle folgenden Aenderungen werden in ein neues
+     * Journal geschrieben, die gegebene Version des aktuellen Standes wird in
+     * einem eigenen Thread kodiert und als Snapshot geschrieben. Danach werden
+     * die Dateien der alten Generationen geloescht.
+     *
+     * @param version mit PartGraph.freeze erzeugte Version des aktuellen
+     *                Standes.
+     */
+    public void compact(PartGraph version) {
+        rotate();
+        int compacted = generation;
+        compactor = new Thread(() -> {
+            try {
+                Snapshot.writeFile(snapshotPath(compacted).toString(), Snapshot.encode(version));
+                deleteBefore(compacted);
+            } catch (IOException e) {
+                // Die alte Generation bleibt erhalten und wird weiter wiederhergestellt.
+            }
+        }, "journal-compactor");
+        compactor.start();
+    }
+
+    /**
+     * Beginnt eine neue Generation mit einem Stand, der nicht aus den bisherigen
+     * Aenderungen hervorgeht, etwa nach dem Laden eines Snapshots. Der Snapshot
+     * wird daher geschrieben, bevor das neue Journal angelegt wird.
+     *
+     * @param snapshot mit Snapshot.encode erzeugter Snapshot des neuen Standes.
+     * @throws IOException falls der Snapshot nicht geschrieben werden kann.
+     */
+    public void replace(byte[] snapshot) throws IOException {
+        awaitCompaction();
+        Snapshot.writeFile(snapshotPath(generation + 1).toString(), snapshot);
+        rotate();
+        deleteBefore(generation);
+    }
+
+    /**
+     * Schreibt alle noch ausstehenden Datensaetze, wartet auf einen laufenden
+     * Snapshot und schliesst das Journal.
+     */
+    public void close() {
+        awaitCompaction();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Alle Datensaetze sind bereits geschrieben.
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Schreibt in einer Schleife alle gesammelten Datensaetze und wartet jeweils
+     * einmal fuer alle, bis sie auf dem Datentraeger liegen. Laeuft im Thread
+     * writer.
+     */
+    private void writeRecords() {
+        while (true) {
+            byte[] buffer;
+            int length;
+            long target;
+            FileChannel file;
+            synchronized (lock) {
+                while (pendingSize == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Erst beenden, wenn alle Datensaetze geschrieben sind.
+                    }
+                }
+                if (pendingSize == 0) {
+                    return;
+                }
+                buffer = pending;
+                length = pendingSize;
+                pending = writing;
+                pendingSize = 0;
+                writing = buffer;
+                target = appended;
+                file = channel;
+            }
+
+            try {
+                ByteBuffer toWrite = ByteBuffer.wrap(buffer, 0, length);
+                while (toWrite.hasRemaining()) {
+                    file.write(toWrite);
+                }
+                file.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                durable = target;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Schliesst das Journal der aktuellen Generation, nachdem alle Datensaetze
+     * geschrieben sind, und legt das Journal der naechsten Generation an.
+     */
+    private void rotate() {
+        sync();
+        synchronized (lock) {
+            try {
+                channel.close();
+                channel = FileChannel.open(journalPath(generation + 1), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException("the journal can't be written!", e);
+            }
+            generation++;
+            size = 0;
+        }
+    }
+
+    /**
+     * Wartet, bis ein eventuell laufender Snapshot geschrieben ist.
+     */
+    private void awaitCompaction() {
+        boolean interrupted = false;
+        while (compactor != null && compactor.isAlive()) {
+            try {
+                compactor.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loescht alle Journale und Snapshots, deren Generation kleiner als die
+     * gegebene ist.
+     *
+     * @param newest Generation, deren Snapshot bereits geschrieben ist.
+     * @throws IOException falls eine Datei nicht geloescht werden kann.
+     */
+    private void deleteBefore(int newest) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int fileGeneration = Math.max(parseGeneration(name, JOURNAL_SUFFIX),
+                        parseGeneration(name, SNAPSHOT_SUFFIX));
+                if (fileGeneration >= 0 && fileGeneration < newest) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fuehrt die Aenderung eines Datensatzes aus.
+     *
+     * @param data  Daten des Datensatzes.
+     * @param parts Teile, auf die die Aenderung angewendet wird.
+     * @throws IllegalArgumentException falls die Aenderung nicht ausgefuehrt
+     *                                  werden kann.
+     */
+    private static void apply(ByteBuffer data, PartList parts) throws IllegalArgumentException {
+        byte type = data.get();
+        if (type == TRANSACTION) {
+            // Die Pruefsummen der enthaltenen Datensaetze sind bereits durch die des
+            // ganzen Datensatzes abgedeckt.
+            while (data.hasRemaining()) {
+                int length = data.getInt();
+                data.getInt();
+                ByteBuffer nested = data.duplicate();
+                nested.limit(data.position() + length);
+                apply(nested, parts);
+                data.position(data.position() + length);
+            }
+            return;
+        }
+        String name = getName(data);
+        switch (type) {
+            case ADD_ASSEMBLY:
+                int count = getVarInt(data);
+                Map<String, Integer> subParts = new TreeMap<String, Integer>();
+                for (int i = 0; i < count; i++) {
+                    String subPartName = getName(data);
+                    subParts.put(subPartName, getVarInt(data));
+                }
+                parts.addAssembly(name, subParts);
+                break;
+            case REMOVE_ASSEMBLY:
+                parts.removeAssembly(name);
+                break;
+            case ADD_PART:
+                int added = getVarInt(data);
+                parts.incAmount(name, added, getName(data));
+                break;
+            case REMOVE_PART:
+                int removed = getVarInt(data);
+                parts.decAmount(name, removed, getName(data));
+                break;
+            case ADD_COMPONENT:
+                parts.restoreComponent(name);
+                break;
+            case RECLAIM:
+                parts.restoreReclaim(name);
+                break;
+            default:
+                throw ErrorType.UNKNOWN_RECORD.exception();
+        }
+    }
+
+    /**
+     * Beginnt einen neuen Datensatz im Puffer record.
+     *
+     * @param type Typ des Datensatzes.
+     */
+    private void beginRecord(byte type) {
+        recordSize = 0;
+        putByte(type);
+    }
+
+    /**
+     * Haengt den Datensatz im Puffer record mit Laenge und Pruefsumme an die
+     * ausstehenden Datensaetze an, waehrend einer Transaktion an deren
+     * zurueckgehaltene Datensaetze.
+     */
+    private void commitRecord() {
+        CRC32 checksum = new CRC32();
+        checksum.update(record, 0, recordSize);
+        int length = HEADER_SIZE + recordSize;
+        if (staged != null) {
+            staged = frameRecord(staged, stagedSize, (int) checksum.getValue());
+            stagedSize += length;
+            return;
+        }
+        synchronized (lock) {
+            pending = frameRecord(pending, pendingSize, (int) checksum.getValue());
+            pendingSize += length;
+            appended += length;
+            size += length;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Kopiert den Datensatz im Puffer record mit Laenge und Pruefsumme an eine
+     * Stelle eines Puffers und vergroessert diesen bei Bedarf.
+     *
+     * @param target   Puffer, in den kopiert wird.
+     * @param offset   Stelle, an der der Datensatz beginnt.
+     * @param checksum Pruefsumme des Datensatzes.
+     * @return Puffer mit dem Datensatz, eventuell ein neues Array.
+     */
+    private byte[] frameRecord(byte[] target, int offset, int checksum) {
+        int length = HEADER_SIZE + recordSize;
+        if (offset + length > target.length) {
+            target = Arrays.copyOf(target, Math.max(target.length * 2, offset + length));
+        }
+        ByteBuffer.wrap(target, offset, HEADER_SIZE).putInt(recordSize).putInt(checksum);
+        System.arraycopy(record, 0, target, offset + HEADER_SIZE, recordSize);
+        return target;
+    }
+
+    private void putByte(int value) {
+        if (recordSize == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordSize++] = (byte) value;
+    }
+
+    private void putBytes(byte[] bytes, int length) {
+        if (recordSize + length > record.length) {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, recordSize + length));
+        }
+        System.arraycopy(bytes, 0, record, recordSize, length);
+        recordSize += length;
+    }
+
+    private void putVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            putByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        putByte(value);
+    }
+
+    private void putName(String name) {
+        putVarInt(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            putByte(name.charAt(i));
+        }
+    }
+
+    private static int getVarInt(ByteBuffer data) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte current = data.get();
+            value |= (current & 0x7F) << shift;
+            if (current >= 0) {
+                return value;
+            }
+        }
+        throw ErrorType.INVALID_JOURNAL_NUMBER.exception();
+    }
+
+    private static String getName(ByteBuffer data) {
+        byte[] name = new byte[getVarInt(data)];
+        data.get(name);
+        return new String(name, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gibt die Generation einer Datei zu diesem Basispfad zurueck.
+     *
+     * @param fileName Name der Datei.
+     * @param suffix   Endung, die die Datei haben muss.
+     * @return Generation der Datei oder -1, falls die Datei nicht zu diesem
+     *         Basispfad und dieser Endung gehoert.
+     */
+    private int parseGeneration(String fileName, String suffix) {
+        int start = baseName.length() + 1;
+        int end = fileName.length() - suffix.length();
+        if (end <= start || !fileName.startsWith(baseName) || fileName.charAt(start - 1) != '.'
+                || !fileName.endsWith(suffix)) {
+            return -1;
+        }
+        int generation = 0;
+        for (int i = start; i < end; i++) {
+            char digit = fileName.charAt(i);
+            if (digit < '0' || digit > '9' || generation > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            generation = generation * 10 + digit - '0';
+        }
+        return generation;
+    }
+
+    private Path journalPath(int fileGeneration) {
+        return directory.resolve(baseName + "." + fileGeneration + JOURNAL_SUFFIX);
+    }
+
+    private Path snapshotPath(int fileGeneration) {
+        return directory.resolve(baseName + "." + fileGeneration + SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,115 @@
+package edu.kit.informatik;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramm fuer Dauern in Nanosekunden nach dem Vorbild von HdrHistogram. Die
+ * Werte werden in Bereiche eingeteilt, deren Breite mit der Groesse der Werte
+ * waechst: Innerhalb jeder Zweierpotenz gibt es 32 gleich breite Bereiche,
+ * jeder Wert wird also mit einem relativen Fehler von hoechstens 1/32
+ * gespeichert, egal ob er bei einer Mikrosekunde oder bei einer Minute liegt.
+ *
+ * <p>Aufgezeichnet wird ohne Sperre und ohne ein einziges Objekt zu erzeugen,
+ * sodass gleichzeitig mehrere Threads aufzeichnen und lesen koennen. Ein
+ * Perzentil, das waehrend des Aufzeichnens gelesen wird, kann die neuesten
+ * Werte noch nicht enthalten.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Zeichnet eine Dauer auf. Negative Dauern werden als 0 gezaehlt.
+     *
+     * @param nanos Dauer in Nanosekunden.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(getBucket(value));
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gibt die Anzahl aller aufgezeichneten Dauern zurueck.
+     *
+     * @return Anzahl der Dauern.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gibt die groesste aufgezeichnete Dauer zurueck.
+     *
+     * @return groesste Dauer in Nanosekunden, 0 falls noch keine aufgezeichnet
+     *         wurde.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gibt eine Dauer zurueck, die mindestens so gross ist wie der gegebene Anteil
+     * aller aufgezeichneten Dauern. Zurueckgegeben wird die obere Grenze des
+     * Bereichs, in dem das Perzentil liegt, hoechstens aber die groesste Dauer.
+     *
+     * @param percentile Perzentil zwischen 0 und 100, etwa 99.9.
+     * @return Dauer in Nanosekunden, 0 falls noch keine aufgezeichnet wurde.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= target) {
+                return Math.min(getUpperBound(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Gibt den Bereich zurueck, in den ein Wert faellt. Werte unter 64 haben
+     * jeweils einen eigenen Bereich, darueber bestimmen die hoechsten sechs
+     * gesetzten Bits den Bereich.
+     *
+     * @param value nicht negativer Wert.
+     * @return Nummer des Bereichs.
+     */
+    private static int getBucket(long value) {
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift <= 0) {
+            return (int) value;
+        }
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Gibt den groessten Wert zurueck, der noch in einen Bereich faellt.
+     *
+     * @param bucket Nummer des Bereichs.
+     * @return groesster Wert des Bereichs.
+     */
+    private static long getUpperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
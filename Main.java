@@ -1,15 +1,106 @@
 package edu.kit.informatik;
 
 public class Main {
+    /**
+     * Option, mit der der Batch-Modus nach dem ersten fehlgeschlagenen Befehl
+     * abgebrochen wird.
+     */
+    private static final String STOP_ON_ERROR = "--stop-on-error";
+
+    /**
+     * Pfad, der im Batch-Modus fuer die Standardeingabe steht.
+     */
+    private static final String STANDARD_INPUT = "-";
+
+    /**
+     * Option, nach der der Basispfad des Journals folgt.
+     */
+    private static final String JOURNAL = "--journal";
+
+    /**
+     * Option, nach der die Adresse des Servers folgt.
+     */
+    private static final String SERVER = "--server";
+
+    /**
+     * Option, mit der beim Entfernen auch Baugruppen entfernt werden, die in
+     * keiner Baugruppe mehr vorkommen.
+     */
+    private static final String CASCADE = "--cascade";
+
+    /**
+     * Option, mit der Baugruppen mit vielen Sub-Teilen parallel aufgeloest
+     * werden.
+     */
+    private static final String PARALLEL = "--parallel";
+
     /**
      * Hauptmethode, die das Materialverwaltungsprogramm startet. In der folgenden
      * Dokumentation steht ein "Teil" fuer eine Baugruppe oder eine
      * Einzelkomponente.
      * 
-     * @param args 
+     * <p>Ohne Befehlsdatei laeuft das Programm interaktiv. Sonst werden die Befehle
+     * im Batch-Modus aus der angegebenen Datei gelesen, oder am Stueck von der
+     * Standardeingabe, falls "-" oder nur --stop-on-error angegeben wird. Mit der
+     * Option --stop-on-error wird nach dem ersten Fehler abgebrochen. Mit der
+     * Option --journal werden alle Teile aus dem Journal wiederhergestellt und
+     * jede Aenderung darin festgehalten. Mit der Option --server nimmt das
+     * Programm Befehle von mehreren Clients ueber einen lokalen Port oder einen
+     * Unix-Socket an. Mit der Option --cascade werden beim Entfernen auch
+     * Baugruppen entfernt, die danach in keiner Baugruppe mehr vorkommen. Mit der
+     * Option --parallel werden Baugruppen mit vielen Sub-Teilen parallel
+     * aufgeloest.
+     * 
+     * @param args [--journal Basispfad] [--cascade] [--parallel] [--server Port
+     *             oder Pfad | [--stop-on-error] [Pfad der Befehlsdatei oder -]]
      */
     public static void main(String[] args) {
-        StartProgram materialRequirements = new StartProgram();
-        materialRequirements.start();
+        boolean stopOnError = false;
+        boolean cascade = false;
+        boolean parallel = false;
+        String journalPath = null;
+        String serverAddress = null;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals(STOP_ON_ERROR)) {
+                stopOnError = true;
+            } else if (arg.equals(CASCADE)) {
+                cascade = true;
+            } else if (arg.equals(PARALLEL)) {
+                parallel = true;
+            } else if (arg.equals(JOURNAL) || arg.equals(SERVER)) {
+                if (i + 1 == args.length) {
+                    Output.printError(arg.substring(2) + " needs a value!");
+                    Output.flush();
+                    return;
+                }
+                if (arg.equals(JOURNAL)) {
+                    journalPath = args[++i];
+                } else {
+                    serverAddress = args[++i];
+                }
+            } else if (path == null) {
+                path = arg;
+            } else {
+                Output.printError("only one command file can be given!");
+                Output.flush();
+                return;
+            }
+        }
+
+        StartProgram materialRequirements = new StartProgram(journalPath, cascade, parallel);
+        if (serverAddress != null) {
+            if (path != null || stopOnError) {
+                Output.printError("the server can't run a command file!");
+                Output.flush();
+                return;
+            }
+            materialRequirements.startServer(serverAddress);
+        } else if (path == null && !stopOnError) {
+            materialRequirements.start();
+        } else {
+            materialRequirements.startBatch(STANDARD_INPUT.equals(path) ? null : path, stopOnError);
+        }
     }
 }
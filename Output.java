@@ -1,18 +1,92 @@
 package edu.kit.informatik;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.function.Consumer;
 
 /**
- * Modelliert und verwaltet den gesamten Output.
+ * Modelliert und verwaltet den gesamten Output. Alle Zeilen werden zunaechst in
+ * einem wiederverwendeten Puffer gesammelt und erst bei einem Aufruf von flush
+ * oder wenn der Puffer voll ist am Stueck an das Terminal weitergegeben.
+ * 
+ * <p>Jeder Thread hat seinen eigenen Puffer und kann seine Ausgabe umleiten,
+ * etwa an die Verbindung eines Clients im Server-Modus.
  * 
  * @author Daniel Vollmer
  * @version 2.0
  *
  */
 public class Output {
+    /**
+     * Anzahl der Zeichen im Puffer, ab der dieser ausgegeben wird.
+     */
+    private static final int FLUSH_SIZE = 1 << 16;
+
+    /**
+     * Puffer fuer alle noch nicht ausgegebenen Zeilen des jeweiligen Threads.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal
+            .withInitial(() -> new StringBuilder(FLUSH_SIZE));
+
+    /**
+     * Ziel, an das der Puffer des jeweiligen Threads ausgegeben wird.
+     */
+    private static final ThreadLocal<Consumer<CharSequence>> TARGET = ThreadLocal
+            .withInitial(() -> Terminal::printLine);
+
+    /**
+     * Wird vor jeder Ausgabe des Puffers ausgefuehrt, oder null.
+     */
+    private static Runnable beforeFlush;
+
+    /**
+     * Legt fest, was vor jeder Ausgabe des Puffers ausgefuehrt wird. Damit wird
+     * etwa gewartet, bis alle ausgegebenen Aenderungen im Journal stehen.
+     * 
+     * @param action auszufuehrende Aktion oder null.
+     */
+    public static void setBeforeFlush(Runnable action) {
+        beforeFlush = action;
+    }
+
+    /**
+     * Leitet die Ausgabe des aktuellen Threads um. Das Ziel erhaelt den Puffer wie
+     * Terminal.printLine ohne den letzten Zeilenumbruch.
+     * 
+     * @param target Ziel der Ausgabe.
+     */
+    public static void redirect(Consumer<CharSequence> target) {
+        TARGET.set(target);
+    }
+
+    /**
+     * Gibt alle bisher im Puffer gesammelten Zeilen aus.
+     */
+    public static void flush() {
+        StringBuilder buffer = BUFFER.get();
+        if (buffer.length() > 0) {
+            if (beforeFlush != null) {
+                beforeFlush.run();
+            }
+            // Der letzte Zeilenumbruch wird von Terminal.printLine ergaenzt.
+            buffer.setLength(buffer.length() - System.lineSeparator().length());
+            TARGET.get().accept(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Gibt eine Fehlermeldung mit dem Praefix "Error, " aus.
+     * 
+     * @param message Fehlermeldung, die ausgegeben werden soll.
+     */
+    public static void printError(String message) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.append("Error, ").append(message);
+        endLine();
+    }
 
     /**
      * Gibt ein Teil aus.
@@ -20,66 +94,211 @@ public class Output {
      * @param part Teil, welches ausgegeben werden soll.
      */
     public static void printPart(String part) {
-        Terminal.printLine(part);
+        StringBuilder buffer = BUFFER.get();
+        buffer.append(part);
+        endLine();
+    }
+
+    /**
+     * Gibt "YES" oder "NO" aus.
+     * 
+     * @param answer true, falls "YES" ausgegeben werden soll, sonst false.
+     */
+    public static void printAnswer(boolean answer) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.append(answer ? "YES" : "NO");
+        endLine();
     }
 
     /**
      * Gibt "OK" aus.
      */
     public static void printOK() {
-        Terminal.printLine("OK");
+        StringBuilder buffer = BUFFER.get();
+        buffer.append("OK");
+        endLine();
     }
 
     /**
      * Gibt eine Map von Baugruppen oder Einzelkomponenten aus. Diese sind dabei
      * absteigend nach ihrer Anzahl sortiert, wenn die Anzahl gleich ist, werden
-     * diese dann lexikografisch aufsteigend sortiert (nach dem Unicode Wert).
+     * diese dann lexikografisch aufsteigend sortiert (nach dem Unicode Wert). Die
+     * Anzahlen koennen Integer, Long oder BigInteger sein.
      * 
      * @param assembliesOrComponents Auszugebende Baugruppen oder Einzelteile.
      */
-    public static void printAssembliesOrComponents(Map<String, Integer> assembliesOrComponents) {
-        Map<Integer, Set<String>> toPrint = new TreeMap<Integer, Set<String>>();
-
-        // In der Map toPrint werden alle Teile und die dazugehoerige Anzahl
-        // gespeichert. Dabei ist die Anzahl der Schluessel, da nach ihr sortiert werden
-        // soll und die Werte sind TreeSets aus Teilenamen, da diese dann ebenfalls
-        // direkt sortiert sind, im Fall, dass zwei Teile die selbe Anzahl haben.
-        for (Map.Entry<String, Integer> entry : assembliesOrComponents.entrySet()) {
-            String name = entry.getKey();
-            int amount = entry.getValue();
-
-            if (!toPrint.containsKey(amount)) {
-                Set<String> toAdd = new TreeSet<String>();
-                toAdd.add(name);
-                toPrint.put(amount, toAdd);
-            } else {
-                toPrint.get(amount).add(name);
-            }
+    public static void printAssembliesOrComponents(Map<String, ? extends Number> assembliesOrComponents) {
+        StringBuilder buffer = BUFFER.get();
+        if (assembliesOrComponents.isEmpty()) {
+            buffer.append("EMPTY");
+            endLine();
+            return;
         }
+        appendSorted(buffer, assembliesOrComponents);
+        endLine();
+    }
+
+    /**
+     * Gibt eine Baugruppe mit allen ihren Einzelteilen in einer Zeile der Form
+     * "Name=Teil:Anzahl;Teil:Anzahl" aus. Die Einzelteile sind dabei wie bei
+     * printAssembliesOrComponents sortiert.
+     * 
+     * @param assembly   Name der Baugruppe.
+     * @param components Einzelteile der Baugruppe mit ihrer Gesamtanzahl.
+     */
+    public static void printAssemblyComponents(String assembly, Map<String, ? extends Number> components) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.append(assembly).append('=');
+        appendSorted(buffer, components);
+        endLine();
+    }
 
-        // Da die Anzah absteigend sein soll, die Reihenfolge der Map aendern.
-        toPrint = ((TreeMap<Integer, Set<String>>) toPrint).descendingMap();
+    /**
+     * Haengt die Eintraege einer Map sortiert an den Puffer an: absteigend nach
+     * ihrer Anzahl und bei gleicher Anzahl lexikografisch aufsteigend.
+     * 
+     * @param buffer  Puffer, an den angehaengt wird.
+     * @param entries anzuhaengende Eintraege.
+     */
+    private static void appendSorted(StringBuilder buffer, Map<String, ? extends Number> entries) {
+        // Die Eintraege werden einmal sortiert und dann direkt in den Puffer
+        // geschrieben, ohne Zwischenstrings fuer einzelne Eintraege zu erzeugen.
+        List<Map.Entry<String, ? extends Number>> toPrint = new ArrayList<Map.Entry<String, ? extends Number>>(
+                entries.entrySet());
+        toPrint.sort((first, second) -> {
+            int byAmount = compareAmounts(second.getValue(), first.getValue());
+            return byAmount != 0 ? byAmount : first.getKey().compareTo(second.getKey());
+        });
 
-        if (toPrint.size() == 0) {
-            Terminal.printLine("EMPTY");
-            return;
+        EntryFormatter formatter = new EntryFormatter(buffer);
+        for (Map.Entry<String, ? extends Number> entry : toPrint) {
+            formatter.add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Vergleicht zwei Anzahlen. Nur wenn eine davon ein BigInteger ist, wird als
+     * BigInteger verglichen, sonst als long.
+     * 
+     * @param first  erste Anzahl.
+     * @param second zweite Anzahl.
+     * @return negativ, 0 oder positiv, falls first kleiner, gleich oder groesser
+     *         als second ist.
+     */
+    private static int compareAmounts(Number first, Number second) {
+        if (first instanceof BigInteger || second instanceof BigInteger) {
+            return toBigInteger(first).compareTo(toBigInteger(second));
         }
+        return Long.compare(first.longValue(), second.longValue());
+    }
+
+    /**
+     * Gibt eine Anzahl als BigInteger zurueck.
+     * 
+     * @param amount Anzahl als Integer, Long oder BigInteger.
+     * @return Anzahl als BigInteger.
+     */
+    private static BigInteger toBigInteger(Number amount) {
+        return amount instanceof BigInteger ? (BigInteger) amount : BigInteger.valueOf(amount.longValue());
+    }
+
+    /**
+     * Gibt Statistiken aus: zuerst eine Zeile mit der Groesse des Katalogs, dann
+     * fuer jeden bereits ausgefuehrten Befehl eine Zeile mit der Anzahl der
+     * Ausfuehrungen und den Perzentilen p50, p99 und p999 sowie der laengsten
+     * Dauer in Mikrosekunden und der Summe seiner Kosten, zuletzt eine Zeile mit
+     * der Anzahl aller Fehlermeldungen und jeder einzelnen Meldung.
+     * 
+     * @param statistics Statistiken, die ausgegeben werden sollen.
+     * @param parts      Anzahl aller Teile.
+     * @param edges      Anzahl aller Kanten.
+     * @param depth      groesste Tiefe einer Baugruppe.
+     */
+    public static void printStatistics(Statistics statistics, int parts, int edges, int depth) {
+        StringBuilder buffer = BUFFER.get();
+        EntryFormatter formatter = new EntryFormatter(buffer);
+        formatter.add("parts", parts);
+        formatter.add("edges", edges);
+        formatter.add("depth", depth);
+        endLine();
 
-        String print = "";
+        for (Command command : Command.values()) {
+            LatencyHistogram latency = statistics.getLatency(command);
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            buffer.append(command.getString()).append(':').append(latency.getCount());
+            appendMicros(buffer.append(";p50:"), latency.getValueAtPercentile(50));
+            appendMicros(buffer.append(";p99:"), latency.getValueAtPercentile(99));
+            appendMicros(buffer.append(";p999:"), latency.getValueAtPercentile(99.9));
+            appendMicros(buffer.append(";max:"), latency.getMax());
+            appendCost(buffer.append(';'), statistics.getCost(command));
+            endLine();
+        }
 
-        // Die Schluessel und Werte der Map toPrint, gemaess ihrer Sortierung, einem
-        // String hinzufuegen, der dann ausgegeben wird.
-        for (Map.Entry<Integer, Set<String>> entry : toPrint.entrySet()) {
-            int amount = entry.getKey();
-            Set<String> nameSet = entry.getValue();
-            for (String name : nameSet) {
-                print += name + ":" + amount + ";";
+        Map<String, Long> errors = statistics.getErrors();
+        if (!errors.isEmpty()) {
+            long total = 0;
+            for (long count : errors.values()) {
+                total += count;
+            }
+            buffer.append("errors:").append(total);
+            for (Map.Entry<String, Long> entry : errors.entrySet()) {
+                buffer.append(';').append(entry.getKey()).append(':').append(entry.getValue());
             }
+            endLine();
+        }
+    }
+
+    /**
+     * Gibt die Kosten eines Befehls aus, der mit dem Praefix explain ausgefuehrt
+     * wurde.
+     * 
+     * @param cost Kosten des Befehls.
+     */
+    public static void printCost(TraversalCost cost) {
+        StringBuilder buffer = BUFFER.get();
+        appendCost(buffer.append("cost:"), cost);
+        endLine();
+    }
+
+    /**
+     * Haengt Kosten in der Form nodes:N;edges:N;depth:N;reused:N;bytes:N an. Die
+     * Bytes fehlen, falls die JVM sie nicht misst.
+     * 
+     * @param buffer Puffer, an den angehaengt wird.
+     * @param cost   Kosten, die angehaengt werden.
+     */
+    private static void appendCost(StringBuilder buffer, TraversalCost cost) {
+        buffer.append("nodes:").append(cost.getNodes());
+        buffer.append(";edges:").append(cost.getEdges());
+        buffer.append(";depth:").append(cost.getDepth());
+        buffer.append(";reused:").append(cost.getReused());
+        if (cost.getBytes() >= 0) {
+            buffer.append(";bytes:").append(cost.getBytes());
         }
+    }
 
-        if (print.length() > 0 && print.charAt(print.length() - 1) == ';') {
-            print = print.substring(0, print.length() - 1);
+    /**
+     * Haengt eine Dauer in Mikrosekunden mit einer Nachkommastelle an.
+     * 
+     * @param buffer Puffer, an den angehaengt wird.
+     * @param nanos  Dauer in Nanosekunden.
+     */
+    private static void appendMicros(StringBuilder buffer, long nanos) {
+        long tenths = (nanos + 50) / 100;
+        buffer.append(tenths / 10).append('.').append(tenths % 10).append("us");
+    }
+
+    /**
+     * Beendet die aktuelle Zeile im Puffer. Der Puffer wird ausgegeben, sobald er
+     * FLUSH_SIZE Zeichen enthaelt.
+     */
+    private static void endLine() {
+        StringBuilder buffer = BUFFER.get();
+        buffer.append(System.lineSeparator());
+        if (buffer.length() >= FLUSH_SIZE) {
+            flush();
         }
-        Terminal.printLine(print);
     }
 }
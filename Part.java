@@ -1,158 +1,169 @@
 package edu.kit.informatik;
 
-import java.util.TreeMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Modelliert ein Teil. Dieses wird dabei nicht weiter zwischen Baugruppe und
  * Einzelteil unterschieden, da der einzige Unterschied ist, ob das Teil aus
- * anderen Teilen besteht oder nicht, und dies in einer Map gespeichert werden
- * kann. Ist diese Map leer, so is das Teil ein Einzelteil, hat die Map
- * mindestens einen Eintrag, so ist es eine Baugruppe. In der Map subParts
- * werden die Teile und deren Anzahl gespeichert, aus denen dieses Teil besteht.
- * Es ist also gewollt so, dass Assembly und Component nicht Unterklassen einer
- * Klasse Part sind, da diese Aufteilung nicht wirklich noetig ist und dies das
- * Ganze nicht vereinfachen wuerde.
+ * anderen Teilen besteht oder nicht. Hat das Teil keine Sub-Teile, so is das
+ * Teil ein Einzelteil, hat es mindestens ein Sub-Teil, so ist es eine
+ * Baugruppe. Es ist also gewollt so, dass Assembly und Component nicht
+ * Unterklassen einer Klasse Part sind, da diese Aufteilung nicht wirklich
+ * noetig ist und dies das Ganze nicht vereinfachen wuerde.
+ * 
+ * <p>Die Sub-Teile und deren Anzahl werden nicht im Teil selbst gespeichert,
+ * sondern kompakt im PartGraph. Ein Part ist nur eine Sicht auf ein Teil des
+ * Graphen, die beim Veraendern der Anzahlen die Regeln fuer Teile prueft.
  * 
  * @author Daniel Vollmer
  * @version 2.0
  * 
  */
 public class Part {
-    private Map<String, Integer> subParts;
+    private PartGraph graph;
+    private int id;
 
     /**
-     * Konstruktor, der den direkten Sub-Teilen dieses Teils eine Map hinzufuegt,
-     * falls jedes dieser Teile nicht fter als 1000 mal vorkommt und mindestens
-     * einmal (values der Map < 1000 und > 0). Falls doch wird eine Exception
-     * geworfen.
+     * Erstellt eine Sicht auf das Teil mit der gegebenen Nummer im Graphen.
+     * 
+     * @param graph Graph, in dem das Teil gespeichert ist.
+     * @param id    Nummer des Teils im Graphen.
+     */
+    public Part(PartGraph graph, int id) {
+        this.graph = graph;
+        this.id = id;
+    }
+
+    /**
+     * Prueft, ob die gegebenen Teile die Sub-Teile einer neuen Baugruppe sein
+     * koennen, also jedes dieser Teile nicht oefter als 1000 mal vorkommt und
+     * mindestens einmal (values der Map <= 1000 und > 0). Falls nicht wird
+     * eine Exception geworfen.
      * 
      * @param subParts Teile die hinzugefuegt werden sollen.
      * @throws IllegalArgumentException falls ein Teil oefter als 1000 mal vorkommt.
      */
-    public Part(Map<String, Integer> subParts) throws IllegalArgumentException {
+    public static void checkAmounts(Map<String, Integer> subParts) throws IllegalArgumentException {
         for (Map.Entry<String, Integer> entry : subParts.entrySet()) {
             if (entry.getValue() > 1000) {
-                throw new IllegalArgumentException(
-                        "it's not possible to add more than 1000 pieces of one part to an assembly!");
+                throw ErrorType.TOO_MANY_PIECES.exception();
             } else if (entry.getValue() < 1) {
-                throw new IllegalArgumentException("the amount of all parts must at least be 1!");
+                throw ErrorType.AMOUNT_BELOW_ONE.exception();
             }
         }
-        this.subParts = new TreeMap<String, Integer>();
-        this.subParts.putAll(subParts);
     }
 
     /**
-     * Erstellt ein Teil, dessen Map von Unter-Teilen leer ist.
-     */
-    public Part() {
-        subParts = new TreeMap<String, Integer>();
-    }
-
-    /**
-     * Konstruktor fuer ein Teil, welches die Eigenschaften des im Parameter
-     * angegeben Teils kopiert.
-     * 
-     * @param part Teil, welches kopiert werden soll.
-     */
-    public Part(Part part) {
-        subParts = new TreeMap<String, Integer>();
-        for (Map.Entry<String, Integer> entry : part.getSubParts().entrySet()) {
-            String name = new String(entry.getKey());
-            Integer amount = new Integer(entry.getValue());
-            subParts.put(name, amount);
-        }
-    }
-
-    /**
-     * Leert die Sub-Teile Map. Macht das Teil also zu einem Einzelteil.
+     * Entfernt alle Sub-Teile. Macht das Teil also zu einem Einzelteil.
      */
     public void toComponent() {
-        subParts = new TreeMap<String, Integer>();
+        graph.clearSubParts(id);
     }
 
     /**
-     * Gibt die Map der Teile zurueck, aus denen dieses Teil besteht.
+     * Gibt eine nach Namen sortierte Map der Teile zurueck, aus denen dieses Teil
+     * besteht. Die Map ist eine Kopie, Aenderungen an ihr haben keine Auswirkung
+     * auf das Teil.
      * 
      * @return Map der Teile aus denen dieses Teil besteht.
      */
     public Map<String, Integer> getSubParts() {
-        return subParts;
+        Adjacency subParts = graph.getSubParts();
+        Map<String, Integer> toReturn = new TreeMap<String, Integer>();
+        for (int i = 0; i < subParts.getDegree(id); i++) {
+            toReturn.put(graph.getName(subParts.getTarget(id, i)), subParts.getValue(id, i));
+        }
+        return toReturn;
     }
 
     /**
      * Gibt true zurueck, falls dieses Teil aus keinen anderen Teilen besteht, also
      * ein Einzelteil ist, sont false.
      * 
-     * @return true, wenn die subParts Map leer ist, sonst false.
+     * @return true, wenn das Teil keine Sub-Teile hat, sonst false.
      */
     public boolean isComponent() {
-        if (subParts.size() == 0) {
-            return true;
-        }
-        return false;
+        return graph.isComponent(id);
     }
 
     /**
-     * Erhoeht die Anzahl eines Teils in subParts. Falls das Teil noch nicht
-     * existiert, wird es hinzugefuegt. Ueberschreitet die Anzahl des Teils in
-     * subParts 1000 wird eine Exception geworfen oder wenn man versucht ein Teil
-     * mit der Anzahl 0 hinzuzufuegen.
+     * Erhoeht die Anzahl eines Teils in den Sub-Teilen. Falls das Teil noch nicht
+     * enthalten ist, wird es hinzugefuegt. Ueberschreitet die Anzahl des Teils
+     * 1000 wird eine Exception geworfen oder wenn man versucht ein Teil mit der
+     * Anzahl 0 hinzuzufuegen. Das Teil muss bereits im Graphen existieren.
      * 
      * @param name   Name des Teils, dessen Anzahl erhoeht werden soll.
      * @param amount Zahl, um die die Anzahl des Teils erhoeht wird.
-     * @throws IllegalArgumentException falls die Anzahl des Teils in subParts 1000
+     * @throws IllegalArgumentException falls die Anzahl des Teils 1000
      *                                  ueberschreitet oder man ein Teil mit der
      *                                  Anzahl 0 hinzufuegen moechte.
      */
     public void incAmount(String name, int amount) throws IllegalArgumentException {
+        checkIncAmount(name, amount);
+        int subPart = graph.getId(name);
+        graph.setAmount(id, subPart, graph.getAmount(id, subPart) + amount);
+    }
+
+    /**
+     * Prueft, ob die Anzahl eines Teils in den Sub-Teilen um amount erhoeht
+     * werden darf, ohne dabei etwas zu veraendern. Wirft die selben Exceptions
+     * wie incAmount.
+     *
+     * @param name   Name des Teils, dessen Anzahl erhoeht werden soll.
+     * @param amount Zahl, um die die Anzahl des Teils erhoeht werden soll.
+     * @throws IllegalArgumentException falls die Anzahl des Teils 1000
+     *                                  ueberschreiten wuerde oder man ein Teil mit
+     *                                  der Anzahl 0 hinzufuegen moechte.
+     */
+    public void checkIncAmount(String name, int amount) throws IllegalArgumentException {
         if (amount < 1) {
-            throw new IllegalArgumentException("the amount of the part you are trying to add must be at least 1!");
+            throw ErrorType.ADDED_AMOUNT_BELOW_ONE.exception();
         } else if (amount > 1000) {
-            throw new IllegalArgumentException(
-                    "it's not possible to add more than 1000 pieces of one part to an assembly!");
+            throw ErrorType.TOO_MANY_PIECES.exception();
         }
-        if (subParts.containsKey(name)) {
-            int oldAmount = subParts.get(name);
-            if (oldAmount + amount > 1000) {
-                throw new IllegalArgumentException(
-                        "it's not possible to add more than 1000 pieces of one part to an assembly!");
-            }
-            subParts.put(name, oldAmount + amount);
-        } else {
-            subParts.put(name, amount);
+        if (getAmount(name) + amount > 1000) {
+            throw ErrorType.TOO_MANY_PIECES.exception();
         }
     }
 
     /**
-     * Vermindert die Anzahl eines Teils in subParts. Wirft eine Exception, falls
-     * das Teil nicht in subParts existiert, oder die Anzahl des Teils in subParts
+     * Vermindert die Anzahl eines Teils in den Sub-Teilen. Wirft eine Exception,
+     * falls das Teil nicht in den Sub-Teilen existiert, oder die Anzahl des Teils
      * geringer ist, als die Anzahl, um die es verringert werden soll. Entfernt das
-     * Teil aus subParts, wenn dessen Anzahl 0 ist.
+     * Teil aus den Sub-Teilen, wenn dessen Anzahl 0 ist.
      * 
      * @param name   Name des Teils, von dem die Anzahl vermindert werden soll.
      * @param amount Zahl, um die die Anzahl des Teils vermindert werden soll.
-     * @throws IllegalArgumentException falls, das Teil nicht in subParts existiert,
-     *                                  oder die Anzahl des Teils in subParts
+     * @throws IllegalArgumentException falls, das Teil nicht in den Sub-Teilen
+     *                                  existiert, oder die Anzahl des Teils
      *                                  geringer ist, als die Anzahl, um die es
      *                                  verringert werden soll
      */
     public void decAmount(String name, int amount) throws IllegalArgumentException {
+        int oldAmount = getAmount(name);
         if (amount < 1) {
-            throw new IllegalArgumentException("the amount of the part you are trying to remove must be at least 1!");
-        } else if (!subParts.containsKey(name)) {
-            throw new IllegalArgumentException("the given assembly does not contain the part " + name + "!");
-        }
-        int oldAmount = subParts.get(name);
-        if (oldAmount == amount) {
-            subParts.remove(name);
+            throw ErrorType.REMOVED_AMOUNT_BELOW_ONE.exception();
+        } else if (oldAmount == 0) {
+            throw ErrorType.PART_NOT_CONTAINED.exception(name);
         } else if (oldAmount < amount) {
-            throw new IllegalArgumentException(
-                    "the amount of Part " + name + " in the given assembly is lower than the given amount!");
-        } else {
-            subParts.put(name, oldAmount - amount);
+            throw ErrorType.AMOUNT_TOO_LOW.exception(name);
+        }
+        graph.setAmount(id, graph.getId(name), oldAmount - amount);
+    }
+
+    /**
+     * Gibt zurueck, wie oft ein Teil direkt in diesem Teil vorkommt.
+     * 
+     * @param name Name des Teils.
+     * @return Anzahl des Teils, 0 falls es nicht enthalten ist.
+     */
+    public int getAmount(String name) {
+        int subPart = graph.getId(name);
+        if (subPart < 0) {
+            return 0;
         }
+        return graph.getAmount(id, subPart);
     }
 
     @Override
@@ -161,14 +172,20 @@ public class Part {
             return "COMPONENT";
         }
 
-        String toReturn = "";
-        for (Map.Entry<String, Integer> entry : subParts.entrySet()) {
+        StringBuilder toReturn = new StringBuilder();
+        appendSubParts(new EntryFormatter(toReturn));
+        return toReturn.toString();
+    }
 
-            toReturn += entry.getKey() + ":" + entry.getValue() + ";";
-        }
-        if (toReturn.length() > 0 && toReturn.charAt(toReturn.length() - 1) == ';') {
-            toReturn = toReturn.substring(0, toReturn.length() - 1);
+    /**
+     * Schreibt die Sub-Teile dieses Teils lexikografisch sortiert mit ihrer Anzahl
+     * in den gegebenen Formatierer.
+     * 
+     * @param formatter Formatierer, in den die Sub-Teile geschrieben werden.
+     */
+    public void appendSubParts(EntryFormatter formatter) {
+        for (Map.Entry<String, Integer> entry : getSubParts().entrySet()) {
+            formatter.add(entry.getKey(), entry.getValue());
         }
-        return toReturn;
     }
 }
@@ -0,0 +1,279 @@
+package edu.kit.informatik;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kompakte Darstellung aller Teile und ihrer Beziehungen. Jeder Name eines
+ * Teils wird genau einmal gespeichert und auf eine fortlaufende Nummer
+ * abgebildet. Die Kanten zwischen den Teilen werden ausschliesslich ueber
+ * diese Nummern in zwei Adjacency-Objekten verwaltet: eines fuer die Sub-Teile
+ * einer Baugruppe und eines fuer den Verwendungsnachweis (in welchen
+ * Baugruppen ein Teil vorkommt). Beide werden immer gemeinsam veraendert.
+ *
+ * <p>Mit freeze wird eine unveraenderliche, nummerierte Version des Graphen
+ * abgezogen, die ohne Sperre gelesen werden kann, waehrend der Graph selbst
+ * weiter veraendert wird. Namen und Kanten werden dabei mit den Versionen
+ * geteilt und erst bei einer Aenderung blockweise kopiert. Damit alle
+ * Versionen dieselbe Zuordnung von Namen zu Nummern verwenden koennen, behaelt
+ * ein Name seine Nummer auch, nachdem das Teil entfernt wurde, und bekommt sie
+ * wieder, wenn es erneut hinzugefuegt wird.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class PartGraph {
+    private Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private PersistentArray<String> names = new PersistentArray<String>();
+    private int capacity = 0;
+    private int size = 0;
+    private long version = 0;
+
+    private Adjacency subParts = new Adjacency();
+    private Adjacency superParts = new Adjacency();
+
+    /**
+     * Erstellt einen leeren Graphen.
+     */
+    public PartGraph() {
+    }
+
+    /**
+     * Erstellt einen Graphen aus bereits bekannten Teilen und Kanten, etwa beim
+     * Laden eines Snapshots. Das Teil mit der Nummer i heisst names[i]. Der
+     * Verwendungsnachweis wird aus den Kanten zu den Sub-Teilen berechnet.
+     *
+     * @param names    Namen aller Teile, ohne doppelte Namen.
+     * @param subParts Kanten von jeder Baugruppe zu ihren direkten Sub-Teilen.
+     */
+    public PartGraph(String[] names, Adjacency subParts) {
+        this.capacity = names.length;
+        this.size = names.length;
+        this.ids = new ConcurrentHashMap<String, Integer>(names.length * 2);
+        for (int id = 0; id < names.length; id++) {
+            ids.put(names[id], id);
+            this.names.set(id, names[id]);
+        }
+        this.subParts = subParts;
+        this.superParts = subParts.transpose(names.length);
+    }
+
+    /**
+     * Erstellt eine Version, die die Zuordnung der Namen mit dem Graphen teilt.
+     *
+     * @param source   Graph, von dem die Version abgezogen wird.
+     * @param names    unveraenderliche Namen der Version.
+     * @param subParts unveraenderliche Kanten zu den Sub-Teilen.
+     */
+    private PartGraph(PartGraph source, PersistentArray<String> names, Adjacency subParts) {
+        this.ids = source.ids;
+        this.names = names;
+        this.capacity = source.capacity;
+        this.size = source.size;
+        this.version = source.version;
+        this.subParts = subParts;
+        this.superParts = source.superParts.freeze();
+    }
+
+    /**
+     * Gibt eine unveraenderliche Version des Graphen mit der aktuellen
+     * Versionsnummer zurueck und erhoeht danach die Versionsnummer des Graphen.
+     * Die Version darf gleichzeitig von mehreren Threads gelesen werden.
+     *
+     * @return unveraenderliche Version des Graphen.
+     */
+    public PartGraph freeze() {
+        PartGraph frozen = new PartGraph(this, names.freeze(), subParts.freeze());
+        version++;
+        return frozen;
+    }
+
+    /**
+     * Setzt den Graphen auf den Stand einer mit freeze erzeugten Version zurueck.
+     * Namen und Kanten werden dabei wieder mit der Version geteilt, der Aufwand
+     * haengt also nicht von der Groesse des Graphen ab. Die Versionsnummer und die
+     * Zuordnung der Namen zu Nummern bleiben erhalten.
+     *
+     * @param frozen Version, die von diesem Graphen abgezogen wurde.
+     */
+    public void restore(PartGraph frozen) {
+        names = frozen.names.thaw();
+        size = frozen.size;
+        subParts = frozen.subParts.thaw();
+        superParts = frozen.superParts.thaw();
+    }
+
+    /**
+     * Gibt die Versionsnummer zurueck. Bei einer mit freeze erzeugten Version ist
+     * dies ihre Nummer, beim Graphen selbst die Nummer der naechsten Version.
+     *
+     * @return Versionsnummer.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Setzt die Versionsnummer, etwa damit die Nummern nach dem Laden eines
+     * Snapshots nicht wieder bei 0 beginnen.
+     *
+     * @param version neue Versionsnummer.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gibt die Nummer eines Teils zurueck oder -1, falls kein Teil mit diesem
+     * Namen existiert.
+     *
+     * @param name Name des Teils.
+     * @return Nummer des Teils oder -1.
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        // Die Zuordnung wird mit neueren Versionen geteilt und kann daher Namen
+        // enthalten, die es in dieser Version nicht gibt.
+        if (id == null || id >= capacity || names.get(id) == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * Gibt true zurueck, wenn ein Teil mit dem gegebenen Namen existiert, sonst
+     * false.
+     *
+     * @param name Name des Teils.
+     * @return true, wenn das Teil existiert, sonst false.
+     */
+    public boolean contains(String name) {
+        return getId(name) >= 0;
+    }
+
+    /**
+     * Gibt den Namen des Teils mit der gegebenen Nummer zurueck oder null, falls
+     * die Nummer aktuell keinem Teil zugeordnet ist.
+     *
+     * @param id Nummer des Teils.
+     * @return Name des Teils oder null.
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Fuegt ein neues Teil ohne Sub-Teile hinzu und gibt seine Nummer zurueck.
+     *
+     * @param name Name des neuen Teils.
+     * @return Nummer des neuen Teils.
+     */
+    public int add(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = capacity++;
+            ids.put(name, id);
+        }
+        names.set(id, name);
+        size++;
+        return id;
+    }
+
+    /**
+     * Entfernt ein Teil. Das Teil darf weder Sub-Teile haben noch in einer
+     * Baugruppe vorkommen.
+     *
+     * @param id Nummer des zu entfernenden Teils.
+     */
+    public void remove(int id) {
+        names.set(id, null);
+        size--;
+    }
+
+    /**
+     * Gibt die Anzahl aller Teile zurueck.
+     *
+     * @return Anzahl aller Teile.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gibt eine obere Schranke fuer alle Nummern zurueck. Arrays, die ueber die
+     * Nummern der Teile indiziert werden, muessen mindestens so gross sein.
+     *
+     * @return obere Schranke aller Nummern.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gibt true zurueck, wenn das Teil aus keinen anderen Teilen besteht, also ein
+     * Einzelteil ist, sonst false.
+     *
+     * @param id Nummer des Teils.
+     * @return true, wenn das Teil ein Einzelteil ist, sonst false.
+     */
+    public boolean isComponent(int id) {
+        return subParts.getDegree(id) == 0;
+    }
+
+    /**
+     * Gibt zurueck, wie oft ein Teil direkt in einer Baugruppe vorkommt.
+     *
+     * @param assembly Nummer der Baugruppe.
+     * @param subPart  Nummer des Teils.
+     * @return Anzahl des Teils in der Baugruppe, 0 falls es nicht vorkommt.
+     */
+    public int getAmount(int assembly, int subPart) {
+        return subParts.getValueTo(assembly, subPart);
+    }
+
+    /**
+     * Setzt, wie oft ein Teil direkt in einer Baugruppe vorkommt, und passt den
+     * Verwendungsnachweis entsprechend an. Ist amount 0, wird das Teil aus der
+     * Baugruppe entfernt.
+     *
+     * @param assembly Nummer der Baugruppe.
+     * @param subPart  Nummer des Teils.
+     * @param amount   neue Anzahl des Teils in der Baugruppe.
+     */
+    public void setAmount(int assembly, int subPart, int amount) {
+        subParts.setValue(assembly, subPart, amount);
+        superParts.setValue(subPart, assembly, amount);
+    }
+
+    /**
+     * Entfernt alle Sub-Teile einer Baugruppe, macht sie also zu einem
+     * Einzelteil.
+     *
+     * @param assembly Nummer der Baugruppe.
+     */
+    public void clearSubParts(int assembly) {
+        for (int i = 0; i < subParts.getDegree(assembly); i++) {
+            superParts.setValue(subParts.getTarget(assembly, i), assembly, 0);
+        }
+        subParts.clear(assembly);
+    }
+
+    /**
+     * Gibt die Kanten von jeder Baugruppe zu ihren direkten Sub-Teilen zurueck.
+     *
+     * @return Kanten zu den Sub-Teilen.
+     */
+    public Adjacency getSubParts() {
+        return subParts;
+    }
+
+    /**
+     * Gibt die Kanten von jedem Teil zu den Baugruppen zurueck, in denen es direkt
+     * vorkommt (Verwendungsnachweis).
+     *
+     * @return Kanten zu den uebergeordneten Baugruppen.
+     */
+    public Adjacency getSuperParts() {
+        return superParts;
+    }
+}
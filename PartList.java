@@ -1,9 +1,13 @@
 package edu.kit.informatik;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 /**
  * Modelliert die Liste aller Teile, die aktuell im System sind. Stellt
@@ -11,11 +15,46 @@ import java.util.TreeMap;
  * Anzahl einzelner Sub-Teile einer Baugruppe zu veraendern, ohne dass dabei die
  * Zyklenfreiheit oder aehnliches verletzt wird.
  * 
+ * <p>Lesende Anfragen arbeiten immer auf der zuletzt veroeffentlichten Version
+ * des Graphen. Normalerweise ist das der Graph selbst. Nach enableVersions wird
+ * nach jedem veraendernden Befehl mit publish eine unveraenderliche Version
+ * veroeffentlicht, sodass lesende Anfragen ohne Sperre parallel zu einem
+ * Schreiber laufen und nie einen halb ausgefuehrten Befehl sehen.
+ * 
+ * <p>Zwischen begin und commit werden Aenderungen ohne Zyklenpruefung
+ * ausgefuehrt. Erst commit prueft einmal fuer alle neuen Kanten, ob der Graph
+ * zyklenfrei geblieben ist, und setzt sonst wie rollback alles auf den Stand
+ * vor begin zurueck. Lesende Anfragen sehen bis dahin den Stand vor begin.
+ * 
+ * <p>Ob ein Teil noch in einer Baugruppe vorkommt, steht direkt im
+ * Verwendungsnachweis des Graphen, dessen Grad bei jeder Kante mitgezaehlt
+ * wird. Das Entfernen einer Baugruppe kostet daher nur so viel wie ihre Anzahl
+ * an Sub-Teilen. Im Kaskadenmodus werden zusaetzlich alle Teile entfernt, die
+ * durch das Entfernen in keiner Baugruppe mehr vorkommen, auch Baugruppen.
+ * 
+ * <p>Jede neue Kante wird sofort in den ReachabilityIndex eingetragen. Mit ihm
+ * beantwortet contains, ob ein Teil in einer Baugruppe vorkommt, und eine neue
+ * Kante wird abgelehnt, wenn die Baugruppe schon im Sub-Teil vorkommt, bevor die
+ * Ordnung angepasst wird.
+ * 
  * @author Daniel Vollmer
  * @version 2.0
  */
 public class PartList {
-    private Map<String, Part> parts = new TreeMap<String, Part>();
+    private PartGraph graph = new PartGraph();
+    private TopologicalOrder order = new TopologicalOrder(graph);
+    private volatile ProductStructure pStructure = new ProductStructure(graph);
+    private volatile ReachabilityIndex index = new ReachabilityIndex(graph);
+    private AtomicReference<PartGraph> published = new AtomicReference<PartGraph>(graph);
+    private boolean versioned = false;
+    private Journal journal;
+    private boolean replaying = false;
+    private boolean cascade = false;
+    private boolean parallel = false;
+    private PartGraph committed;
+    private volatile Thread transactionOwner;
+    private IntList stagedEdges;
+    private Statistics statistics = new Statistics();
 
     /**
      * Gibt eine Map aller Baugruppen und deren Anzahl zurueck, die indirekt oder
@@ -27,14 +66,15 @@ public class PartList {
      * @throws IllegalArgumentException falls die gegebene Baugruppe nicht
      *                                  existiert.
      */
-    public Map<String, Integer> getAssemblies(String name) throws IllegalArgumentException {
-        if (!parts.containsKey(name)) {
-            throw new IllegalArgumentException("the given assembly doesn not exist!");
-        } else if (parts.get(name).isComponent()) {
-            throw new IllegalArgumentException("you can only get assemblies of another assembly not a component!");
+    public Map<String, Number> getAssemblies(String name) throws IllegalArgumentException {
+        PartGraph version = published.get();
+        int id = version.getId(name);
+        if (id < 0) {
+            throw ErrorType.EXPLODED_ASSEMBLY_NOT_FOUND.exception();
+        } else if (version.isComponent(id)) {
+            throw ErrorType.ASSEMBLIES_OF_COMPONENT.exception();
         }
-        ProductStructure pStructure = new ProductStructure(parts);
-        return pStructure.getAssemblies(name, 1, new TreeMap<String, Integer>());
+        return pStructure.getAssemblies(version, id);
     }
 
     /**
@@ -47,14 +87,15 @@ public class PartList {
      * @throws IllegalArgumentException falls die gegebene Baugruppe nicht
      *                                  existiert.
      */
-    public Map<String, Integer> getComponents(String name) throws IllegalArgumentException {
-        if (!parts.containsKey(name)) {
-            throw new IllegalArgumentException("the given assembly doesn not exist!");
-        } else if (parts.get(name).isComponent()) {
-            throw new IllegalArgumentException("you can only get components of an assembly not a component!");
+    public Map<String, Number> getComponents(String name) throws IllegalArgumentException {
+        PartGraph version = published.get();
+        int id = version.getId(name);
+        if (id < 0) {
+            throw ErrorType.EXPLODED_ASSEMBLY_NOT_FOUND.exception();
+        } else if (version.isComponent(id)) {
+            throw ErrorType.COMPONENTS_OF_COMPONENT.exception();
         }
-        ProductStructure pStructure = new ProductStructure(parts);
-        return pStructure.getComponents(name, 1, new TreeMap<String, Integer>());
+        return pStructure.getComponents(version, id);
     }
 
     /**
@@ -73,29 +114,45 @@ public class PartList {
      *                                  Zyklus entstehen wuerde.
      */
     public void incAmount(String assemblyName, int amount, String subPartName) throws IllegalArgumentException {
-        Part assembly = parts.get(assemblyName);
-        if (!parts.containsKey(assemblyName) || assembly.isComponent()) {
-            throw new IllegalArgumentException("the given assembly doesn't exist!");
+        int assemblyId = graph.getId(assemblyName);
+        if (assemblyId < 0 || graph.isComponent(assemblyId)) {
+            throw ErrorType.ASSEMBLY_NOT_FOUND.exception();
         }
         // Falls das Teil, von welchem man die Anzahl erhoehen will, noch nicht im
         // System existiert, hinzufuegen.
-        else if (!parts.containsKey(subPartName)) {
-            parts.put(subPartName, new Part());
+        else if (!graph.contains(subPartName)) {
+            addComponent(subPartName);
+            // Das Einzelteil bleibt auch erhalten, wenn der Befehl danach fehlschlaegt.
+            if (journal != null) {
+                journal.writeAddComponent(subPartName);
+            }
         }
 
-        ProductStructure pStructure = new ProductStructure(parts);
-        if (!pStructure.areAllCycleFree(assemblyName, amount, subPartName)) {
-            throw new IllegalArgumentException("the new parts would create a cycle!");
+        // Nur eine neue Kante kann einen Zyklus erzeugen, wird lediglich die Anzahl
+        // eines schon enthaltenen Teils erhoeht, ist keine Pruefung noetig.
+        Part assembly = new Part(graph, assemblyId);
+        int subPartId = graph.getId(subPartName);
+        assembly.checkIncAmount(subPartName, amount);
+        boolean newEdge = graph.getAmount(assemblyId, subPartId) == 0;
+        if (newEdge && !addEdgeToOrder(assemblyId, subPartId)) {
+            throw ErrorType.PARTS_CREATE_CYCLE.exception();
         }
 
         assembly.incAmount(subPartName, amount);
+        pStructure.invalidate(assemblyId);
+        if (newEdge) {
+            index.addEdges(assemblyId, new int[] {subPartId});
+        }
+        if (journal != null) {
+            journal.writeAddPart(assemblyName, amount, subPartName);
+            compactJournal();
+        }
     }
 
     /**
      * Vermindert die Anzahl, wie oft eine Baugruppe oder ein Einzelteil in einer
-     * anderen Baugruppe vorkommt. Entfernt die Teile gegebenenfalls aus der Map
-     * aller Teile (parts) falls, diese nach der Verminderung nicht mehr existieren
-     * sollen.
+     * anderen Baugruppe vorkommt. Entfernt die Teile gegebenenfalls aus dem System,
+     * falls diese nach der Verminderung nicht mehr existieren sollen.
      * 
      * @param assemblyName Baugruppe, bei der die Anzahl eines Teils vermindert
      *                     werden soll.
@@ -105,27 +162,40 @@ public class PartList {
      *                                  Einzelteil nicht existieren
      */
     public void decAmount(String assemblyName, int amount, String subPartName) throws IllegalArgumentException {
-        Part assembly = parts.get(assemblyName);
-        if (!parts.containsKey(assemblyName) || assembly.isComponent()) {
-            throw new IllegalArgumentException("the given assembly doesn't exist!");
+        int assemblyId = graph.getId(assemblyName);
+        if (assemblyId < 0 || graph.isComponent(assemblyId)) {
+            throw ErrorType.ASSEMBLY_NOT_FOUND.exception();
         }
-        assembly.decAmount(subPartName, amount);
+        new Part(graph, assemblyId).decAmount(subPartName, amount);
+        pStructure.invalidate(assemblyId);
 
-        if (!parts.get(assemblyName).getSubParts().containsKey(subPartName)) {
+        int subPartId = graph.getId(subPartName);
+        IntList orphans = new IntList();
+        if (graph.getAmount(assemblyId, subPartId) == 0) {
+            index.removeEdges();
             // Entfernen des Sub-Teils oder des Teils, von dem etwas abgezogen wird, falls
             // diese danach in keinem anderen Teil mehr vorkommen.
-            if (!hasSuperPart(assemblyName, null)) {
-                parts.remove(assemblyName);
+            if (!hasSuperPart(assemblyId, -1)) {
+                addSubParts(assemblyId, orphans);
+                removeFromParts(assemblyId);
             }
-            if (parts.get(subPartName).isComponent() && !hasSuperPart(subPartName, null)) {
-                parts.remove(subPartName);
+            if (graph.isComponent(subPartId) && !hasSuperPart(subPartId, -1)) {
+                removeFromParts(subPartId);
+            } else {
+                orphans.add(subPartId);
             }
         }
+        List<String> reclaimed = reclaim(orphans);
+        if (journal != null) {
+            journal.writeRemovePart(assemblyName, amount, subPartName);
+            writeReclaimed(reclaimed);
+            compactJournal();
+        }
     }
 
     /**
-     * Fuegt der Map aller Teile (parts) eine Baugruppe hinzu. Dabei wird
-     * sichergestellt, dass dadurch kein Zyklus entsteht.
+     * Fuegt dem System eine Baugruppe hinzu. Dabei wird sichergestellt, dass
+     * dadurch kein Zyklus entsteht.
      * 
      * @param assemblyName Name der Baugruppe die hinzugefuegt werden soll.
      * @param subParts     die Teile aus denen die Baugruppe besteht, die
@@ -135,39 +205,233 @@ public class PartList {
      *                                  entstehen wuerde.
      */
     public void addAssembly(String assemblyName, Map<String, Integer> subParts) throws IllegalArgumentException {
-        if (parts.containsKey(assemblyName) && !parts.get(assemblyName).isComponent()) {
-            throw new IllegalArgumentException("the given assembly already exists!");
+        int assemblyId = graph.getId(assemblyName);
+        if (assemblyId >= 0 && !graph.isComponent(assemblyId)) {
+            throw ErrorType.ASSEMBLY_EXISTS.exception();
         }
 
-        ProductStructure pStructure = new ProductStructure(parts);
-        if (!pStructure.areAllCycleFree(assemblyName, new Part(subParts))) {
-            throw new IllegalArgumentException("the new assembly would create a cycle!");
+        Part.checkAmounts(subParts);
+        if (subParts.containsKey(assemblyName)) {
+            throw ErrorType.ASSEMBLY_CREATES_CYCLE.exception();
+        }
+
+        // Nur Kanten von einem schon existierenden Einzelteil zu schon existierenden
+        // Teilen koennen einen Zyklus erzeugen. Die Ordnung bleibt auch dann gueltig,
+        // wenn eine spaetere Kante fehlschlaegt.
+        if (assemblyId >= 0) {
+            for (String subPartName : subParts.keySet()) {
+                int subPartId = graph.getId(subPartName);
+                if (subPartId >= 0 && !addEdgeToOrder(assemblyId, subPartId)) {
+                    throw ErrorType.ASSEMBLY_CREATES_CYCLE.exception();
+                }
+            }
+        } else {
+            assemblyId = graph.add(assemblyName);
+            order.addFirst(assemblyId);
         }
 
         // Jedes Sub-Teil, das noch nicht existiert, als Einzelteil zum System
         // hinzufuegen
+        IntList subPartIds = new IntList();
         for (Map.Entry<String, Integer> entry : subParts.entrySet()) {
-            if (!parts.containsKey(entry.getKey())) {
-                addComponent(entry.getKey());
+            int subPartId = graph.getId(entry.getKey());
+            if (subPartId < 0) {
+                subPartId = addComponent(entry.getKey());
+            }
+            graph.setAmount(assemblyId, subPartId, entry.getValue());
+            subPartIds.add(subPartId);
+        }
+        pStructure.invalidate(assemblyId);
+        index.addEdges(assemblyId, subPartIds.toArray());
+        if (journal != null) {
+            journal.writeAddAssembly(assemblyName, subParts);
+            compactJournal();
+        }
+    }
+
+    /**
+     * Passt die topologische Ordnung an eine neue Kante an. Beim Wiederherstellen
+     * aus einem Journal wurde jede Kante schon einmal geprueft, die Ordnung wird
+     * dann erst am Ende mit TopologicalOrder.rebuild neu berechnet. In einer
+     * Transaktion wird die Kante nur vermerkt und erst bei commit geprueft. Nur
+     * eine Kante von einem Teil zu sich selbst wird sofort abgelehnt, da das
+     * Entfernen von Teilen davon ausgeht, dass kein Teil in sich selbst vorkommt.
+     * 
+     * @param assembly Nummer der Baugruppe.
+     * @param subPart  Nummer des Sub-Teils.
+     * @return true, wenn die Kante hinzugefuegt werden kann, false, wenn sie einen
+     *         Zyklus erzeugen wuerde.
+     */
+    private boolean addEdgeToOrder(int assembly, int subPart) {
+        if (committed != null && !replaying) {
+            if (assembly == subPart) {
+                return false;
             }
+            stagedEdges.add(assembly);
+            stagedEdges.add(subPart);
+            return true;
+        }
+        return replaying || (!rejectByIndex(assembly, subPart) && order.addEdge(assembly, subPart));
+    }
+
+    /**
+     * Gibt true zurueck, falls die Baugruppe laut ReachabilityIndex schon direkt
+     * oder indirekt im Sub-Teil vorkommt, die neue Kante also einen Zyklus
+     * erzeugen wuerde. Sonst kann die Ordnung die Kante immer aufnehmen.
+     *
+     * @param assembly Nummer der Baugruppe.
+     * @param subPart  Nummer des Sub-Teils.
+     * @return true, falls die Kante einen Zyklus erzeugen wuerde.
+     */
+    private boolean rejectByIndex(int assembly, int subPart) {
+        FlightEvents.CycleCheckEvent event = new FlightEvents.CycleCheckEvent();
+        event.begin();
+        boolean cycle = index.contains(graph, subPart, assembly);
+        event.end();
+        if (cycle && event.shouldCommit()) {
+            event.assembly = graph.getName(assembly);
+            event.subPart = graph.getName(subPart);
+            event.cycle = true;
+            event.commit();
         }
+        return cycle;
+    }
 
-        parts.put(assemblyName, new Part(subParts));
+    /**
+     * Fuegt dem System ein Einzelteil hinzu.
+     * 
+     * @param name Name des Einzelteils.
+     * @return Nummer des neuen Einzelteils.
+     */
+    private int addComponent(String name) {
+        int id = graph.add(name);
+        order.addLast(id);
+        return id;
     }
 
     /**
-     * Fuegt der Map parts ein Einzelteil hinzu.
+     * Fuegt dem System beim Wiederherstellen aus einem Journal ein Einzelteil
+     * hinzu, falls es noch nicht existiert.
      * 
      * @param name Name des Einzelteils.
      */
-    private void addComponent(String name) {
-        parts.put(name, new Part());
+    void restoreComponent(String name) {
+        if (!graph.contains(name)) {
+            addComponent(name);
+        }
+    }
+
+    /**
+     * Schaltet den Kaskadenmodus ein oder aus. Im Kaskadenmodus entfernen
+     * removeAssembly und decAmount auch Baugruppen, die danach in keiner anderen
+     * Baugruppe mehr vorkommen, und davon ausgehend alle Teile, die dadurch
+     * ebenfalls in keiner Baugruppe mehr vorkommen. Ohne Kaskadenmodus bleiben
+     * solche Baugruppen als eigenstaendige Baugruppen erhalten.
+     * 
+     * @param cascade true, um den Kaskadenmodus einzuschalten, sonst false.
+     */
+    public void setCascade(boolean cascade) {
+        this.cascade = cascade;
+    }
+
+    /**
+     * Schaltet den parallelen Modus ein oder aus, siehe
+     * ProductStructure.setParallel.
+     * 
+     * @param parallel true, um den parallelen Modus einzuschalten, sonst false.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+        pStructure.setParallel(parallel);
+    }
+
+    /**
+     * Entfernt im Kaskadenmodus alle Teile aus orphans, die in keiner Baugruppe
+     * mehr vorkommen, und danach alle ihre Sub-Teile, die dadurch ebenfalls in
+     * keiner Baugruppe mehr vorkommen. Jedes entfernte Teil kostet dabei nur so
+     * viel wie seine Anzahl an Sub-Teilen. Beim Wiederherstellen aus dem Journal
+     * wird nichts entfernt, da die entfernten Teile dort einzeln stehen.
+     * 
+     * @param orphans Nummern der Teile, die ihre letzte Baugruppe verloren haben
+     *                koennten. Die Liste wird dabei geleert.
+     * @return Namen der entfernten Teile in der Reihenfolge, in der sie entfernt
+     *         wurden.
+     */
+    private List<String> reclaim(IntList orphans) {
+        List<String> reclaimed = new ArrayList<String>();
+        if (!cascade || replaying) {
+            return reclaimed;
+        }
+        while (!orphans.isEmpty()) {
+            int id = orphans.removeLast();
+            // Ein Teil kann mehrfach in der Liste stehen oder schon entfernt sein.
+            if (graph.getName(id) == null || hasSuperPart(id, -1)) {
+                continue;
+            }
+            addSubParts(id, orphans);
+            reclaimed.add(graph.getName(id));
+            removeFromParts(id);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Haengt die Nummern aller direkten Sub-Teile eines Teils an eine Liste an.
+     * 
+     * @param id       Nummer des Teils.
+     * @param subParts Liste, an die angehaengt wird.
+     */
+    private void addSubParts(int id, IntList subParts) {
+        Adjacency subPartEdges = graph.getSubParts();
+        for (int i = 0; i < subPartEdges.getDegree(id); i++) {
+            subParts.add(subPartEdges.getTarget(id, i));
+        }
+    }
+
+    /**
+     * Haelt die im Kaskadenmodus zusaetzlich entfernten Teile im Journal fest.
+     * 
+     * @param reclaimed Namen der entfernten Teile.
+     */
+    private void writeReclaimed(List<String> reclaimed) {
+        for (String name : reclaimed) {
+            journal.writeReclaim(name);
+        }
+    }
+
+    /**
+     * Entfernt beim Wiederherstellen aus einem Journal ein Teil, das im
+     * Kaskadenmodus entfernt wurde.
+     * 
+     * @param name Name des Teils.
+     * @throws IllegalArgumentException falls das Teil nicht existiert oder noch in
+     *                                  einer Baugruppe vorkommt.
+     */
+    void restoreReclaim(String name) throws IllegalArgumentException {
+        int id = graph.getId(name);
+        if (id < 0 || hasSuperPart(id, -1)) {
+            throw ErrorType.JOURNAL_NOT_REPLAYED.exception();
+        }
+        removeFromParts(id);
+    }
+
+    /**
+     * Entfernt ein Teil aus dem System und aus dem Verwendungsnachweis seiner
+     * Sub-Teile.
+     * 
+     * @param id Nummer des zu entfernenden Teils.
+     */
+    private void removeFromParts(int id) {
+        pStructure.invalidate(id);
+        index.removeEdges();
+        graph.clearSubParts(id);
+        graph.remove(id);
     }
 
     /**
-     * Entfernt eine Baugruppe aus der Map parts, sofern sie nicht Teil einer
-     * anderen Baugruppe ist. Wenn diese Baugruppe noch Teil einer anderen Baugruppe
-     * ist, wird sie nur zu einem Einzelteil und nicht komplett aus parts entfernt.
+     * Entfernt eine Baugruppe aus dem System, sofern sie nicht Teil einer anderen
+     * Baugruppe ist. Wenn diese Baugruppe noch Teil einer anderen Baugruppe ist,
+     * wird sie nur zu einem Einzelteil und nicht komplett entfernt.
      * 
      * @param name Name der zu entfernenden Baugruppe
      * @throws IllegalArgumentException falls die Baugruppe nicht existiert oder ein
@@ -175,50 +439,61 @@ public class PartList {
      *                                  jedoch ein Einzelteil ist.
      */
     public void removeAssembly(String name) throws IllegalArgumentException {
-        Part toRemove = parts.get(name);
-        if (!parts.containsKey(name)) {
-            throw new IllegalArgumentException("the given assembly doesn't exist!");
-        } else if (toRemove.isComponent()) {
-            throw new IllegalArgumentException("only assemblies can be reomved!");
+        int id = graph.getId(name);
+        if (id < 0) {
+            throw ErrorType.ASSEMBLY_NOT_FOUND.exception();
+        } else if (graph.isComponent(id)) {
+            throw ErrorType.COMPONENT_REMOVED.exception();
+        }
+
+        Adjacency subPartEdges = graph.getSubParts();
+        int[] subParts = new int[subPartEdges.getDegree(id)];
+        for (int i = 0; i < subParts.length; i++) {
+            subParts[i] = subPartEdges.getTarget(id, i);
         }
 
-        Map<String, Integer> subParts = toRemove.getSubParts();
-        Set<Map.Entry<String, Part>> set = parts.entrySet();
-        Iterator<Map.Entry<String, Part>> iter = set.iterator();
+        // zu entfernende Baugruppe entfernen, falls sie nicht teil einer anderen
+        // Baugruppe ist, sonst zu einer Einzelkomponente machen.
+        if (!hasSuperPart(id, id)) {
+            removeFromParts(id);
+        } else {
+            pStructure.invalidate(id);
+            index.removeEdges();
+            graph.clearSubParts(id);
+        }
 
         // Jedes Sub-Teil der zu entfernenden Baugruppe entfernen, wenn es in keiner
         // anderen Baugruppe mehr vorkommt und eine Einzelkomponente ist.
-        while (iter.hasNext()) {
-            Map.Entry<String, Part> entry = iter.next();
-            if (subParts.containsKey(entry.getKey())) {
-                if (!hasSuperPart(entry.getKey(), name) && entry.getValue().isComponent()) {
-                    iter.remove();
-
-                }
+        IntList orphans = new IntList();
+        for (int subPart : subParts) {
+            if (graph.isComponent(subPart) && !hasSuperPart(subPart, -1)) {
+                removeFromParts(subPart);
+            } else {
+                orphans.add(subPart);
             }
         }
-
-        // zu entfernende Baugruppe entfernen, falls sie nicht teil einer anderen
-        // Baugruppe ist, sonst zu einer Einzelkomponente machen.
-        if (!hasSuperPart(name, name)) {
-            parts.remove(name);
-            return;
+        List<String> reclaimed = reclaim(orphans);
+        if (journal != null) {
+            journal.writeRemoveAssembly(name);
+            writeReclaimed(reclaimed);
+            compactJournal();
         }
-        toRemove.toComponent();
     }
 
     /**
-     * Gibt ein Teil, welches in der Map parts ist als String zurueck.
+     * Gibt ein Teil, welches im System ist, als String zurueck.
      * 
      * @param name Name des Teils, welches als String zuruekgegeben werden soll.
      * @return Darstellung des Teiles als String.
-     * @throws IllegalArgumentException falls das Teil nicht in der Map parts ist.
+     * @throws IllegalArgumentException falls das Teil nicht im System ist.
      */
     public String partToString(String name) throws IllegalArgumentException {
-        if (!parts.containsKey(name)) {
-            throw new IllegalArgumentException("part doesn't exist!");
+        PartGraph version = published.get();
+        int id = version.getId(name);
+        if (id < 0) {
+            throw ErrorType.PART_NOT_FOUND.exception();
         }
-        return parts.get(name).toString();
+        return new Part(version, id).toString();
     }
 
     /**
@@ -232,23 +507,498 @@ public class PartList {
      *         false.
      */
     public boolean hasSuperPart(String name, String currentSuperPart) {
-        for (Map.Entry<String, Part> entry : parts.entrySet()) {
-            if (entry.getValue().getSubParts().containsKey(name) && !entry.getKey().equals(currentSuperPart)) {
-                return true;
+        PartGraph version = published.get();
+        int id = version.getId(name);
+        return id >= 0 && hasSuperPart(version, id, currentSuperPart == null ? -1 : version.getId(currentSuperPart));
+    }
+
+    /**
+     * Gibt true zurueck, wenn ein Teil noch teil anderer Baugruppen ist, sonst
+     * false.
+     * 
+     * @param id               Nummer des Teils, welches ueberprueft werden soll.
+     * @param currentSuperPart Nummer einer Baugruppe welche bei der Ueberpruefung
+     *                         ausgeschlossen werden soll, oder -1.
+     * @return true, wenn das Teil noch in anderen Baugruppen existiert, sonst
+     *         false.
+     */
+    private boolean hasSuperPart(int id, int currentSuperPart) {
+        return hasSuperPart(graph, id, currentSuperPart);
+    }
+
+    /**
+     * Gibt true zurueck, wenn ein Teil in einer Version des Graphen noch teil
+     * anderer Baugruppen ist, sonst false.
+     * 
+     * @param version          Version des Graphen.
+     * @param id               Nummer des Teils, welches ueberprueft werden soll.
+     * @param currentSuperPart Nummer einer Baugruppe welche bei der Ueberpruefung
+     *                         ausgeschlossen werden soll, oder -1.
+     * @return true, wenn das Teil noch in anderen Baugruppen existiert, sonst
+     *         false.
+     */
+    private static boolean hasSuperPart(PartGraph version, int id, int currentSuperPart) {
+        int degree = version.getSuperParts().getDegree(id);
+        TraversalCost.count(1, degree == 1 ? 1 : 0, 0, 0);
+        return degree > 1 || (degree == 1 && version.getSuperParts().getTarget(id, 0) != currentSuperPart);
+    }
+
+    /**
+     * Gibt eine Map aller Baugruppen zurueck, in denen ein Teil direkt vorkommt,
+     * und wie oft es darin jeweils vorkommt. Die Map wird direkt aus dem
+     * Verwendungsnachweis gelesen.
+     * 
+     * @param name Name des Teils.
+     * @return Map aller Baugruppen, die das Teil direkt enthalten, und die
+     *         jeweilige Anzahl.
+     * @throws IllegalArgumentException falls das Teil nicht existiert.
+     */
+    public Map<String, Integer> getSuperParts(String name) throws IllegalArgumentException {
+        PartGraph version = published.get();
+        int id = version.getId(name);
+        if (id < 0) {
+            throw ErrorType.PART_NOT_FOUND.exception();
+        }
+        Adjacency superParts = version.getSuperParts();
+        Map<String, Integer> toReturn = new HashMap<String, Integer>();
+        for (int i = 0; i < superParts.getDegree(id); i++) {
+            toReturn.put(version.getName(superParts.getTarget(id, i)), superParts.getValue(id, i));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Gibt eine Map aller obersten Baugruppen zurueck, die ein Teil direkt oder
+     * indirekt enthalten, und wie oft das Teil insgesamt darin vorkommt.
+     * 
+     * @param name Name des Teils.
+     * @return Map aller obersten Baugruppen, die das Teil enthalten, und die
+     *         jeweilige Gesamtanzahl.
+     * @throws IllegalArgumentException falls das Teil nicht existiert.
+     */
+    public Map<String, Number> getUsedIn(String name) throws IllegalArgumentException {
+        PartGraph version = published.get();
+        int id = version.getId(name);
+        if (id < 0) {
+            throw ErrorType.PART_NOT_FOUND.exception();
+        }
+        return pStructure.getUsedIn(version, id);
+    }
+
+    /**
+     * Gibt fuer jede Baugruppe die Gesamtanzahl aller ihrer Einzelteile an
+     * consumer weiter, siehe ProductStructure.getAllComponents.
+     * 
+     * @param consumer erhaelt den Namen jeder Baugruppe und eine Map mit Namen und
+     *                 Gesamtanzahl ihrer Einzelteile.
+     * @return Anzahl der Baugruppen.
+     */
+    public int getAllComponents(BiConsumer<String, Map<String, Number>> consumer) {
+        return pStructure.getAllComponents(published.get(), consumer);
+    }
+
+    /**
+     * Berechnet fuer eine Liste von Bedarfen den Brutto- und Nettobedarf aller
+     * benoetigten Teile in einem einzigen Durchlauf, siehe
+     * ProductStructure.getRequirements.
+     * 
+     * @param demands Name und Bedarf jedes Teils, das benoetigt wird.
+     * @param stock   Name und Lagerbestand von Teilen. Teile, die nicht enthalten
+     *                sind, haben keinen Bestand.
+     * @return Brutto- und Nettobedarf aller benoetigten Teile.
+     * @throws IllegalArgumentException falls ein Teil nicht existiert, ein Bedarf
+     *                                  kleiner als 1 oder ein Bestand negativ ist.
+     */
+    public Requirements getRequirements(Map<String, Integer> demands, Map<String, Integer> stock)
+            throws IllegalArgumentException {
+        PartGraph version = published.get();
+        int[] ids = new int[demands.size()];
+        int[] amounts = new int[demands.size()];
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : demands.entrySet()) {
+            ids[index] = version.getId(entry.getKey());
+            amounts[index] = entry.getValue();
+            if (ids[index] < 0) {
+                throw ErrorType.PART_NOT_FOUND.exception();
+            } else if (amounts[index] < 1) {
+                throw ErrorType.AMOUNT_BELOW_ONE.exception();
+            }
+            index++;
+        }
+
+        int[] stockIds = new int[stock.size()];
+        int[] stockAmounts = new int[stock.size()];
+        index = 0;
+        for (Map.Entry<String, Integer> entry : stock.entrySet()) {
+            stockIds[index] = version.getId(entry.getKey());
+            stockAmounts[index] = entry.getValue();
+            if (stockIds[index] < 0) {
+                throw ErrorType.PART_NOT_FOUND.exception();
+            } else if (stockAmounts[index] < 0) {
+                throw ErrorType.NEGATIVE_STOCK.exception();
             }
+            index++;
         }
-        return false;
+        return pStructure.getRequirements(version, ids, amounts, stockIds, stockAmounts);
+    }
+
+    /**
+     * Gibt true zurueck, falls ein Teil direkt oder indirekt in einer Baugruppe
+     * vorkommt, siehe ReachabilityIndex.contains. Eine Baugruppe enthaelt sich
+     * nicht selbst.
+     * 
+     * @param assemblyName Name der Baugruppe.
+     * @param partName     Name des gesuchten Teils.
+     * @return true, falls das Teil in der Baugruppe vorkommt, sonst false.
+     * @throws IllegalArgumentException falls die Baugruppe oder das Teil nicht
+     *                                  existiert.
+     */
+    public boolean contains(String assemblyName, String partName) throws IllegalArgumentException {
+        PartGraph version = published.get();
+        int assemblyId = version.getId(assemblyName);
+        int partId = version.getId(partName);
+        if (assemblyId < 0 || version.isComponent(assemblyId)) {
+            throw ErrorType.ASSEMBLY_NOT_FOUND.exception();
+        } else if (partId < 0) {
+            throw ErrorType.PART_NOT_FOUND.exception();
+        }
+        return index.contains(version, assemblyId, partId);
+    }
+
+    /**
+     * Speichert alle Teile als Snapshot in einer Datei. Nach enableVersions wird
+     * wie bei lesenden Anfragen die zuletzt veroeffentlichte Version gespeichert,
+     * save muss dann nicht auf andere Befehle warten und haelt auch keine auf.
+     * Nur der Thread, der gerade eine Transaktion ausfuehrt, darf nicht speichern.
+     * 
+     * @param path Pfad der Datei.
+     * @throws IllegalArgumentException falls die Datei nicht geschrieben werden
+     *                                  kann oder der aufrufende Thread gerade eine
+     *                                  Transaktion ausfuehrt.
+     */
+    public void save(String path) throws IllegalArgumentException {
+        if (transactionOwner == Thread.currentThread()) {
+            throw ErrorType.SAVE_IN_TRANSACTION.exception();
+        }
+        try {
+            if (versioned) {
+                Snapshot.writeFile(path, Snapshot.encode(published.get()));
+            } else {
+                Snapshot.write(path, graph, order);
+            }
+        } catch (IOException e) {
+            throw ErrorType.SNAPSHOT_NOT_WRITTEN.exception();
+        }
+    }
+
+    /**
+     * Ersetzt alle Teile durch die Teile aus einem Snapshot. Da nur zyklenfreie
+     * Kataloge gespeichert werden, wird die topologische Ordnung direkt aus dem
+     * Snapshot uebernommen, ohne die Kanten einzeln zu pruefen.
+     * 
+     * @param path Pfad der Datei.
+     * @throws IllegalArgumentException falls die Datei nicht gelesen werden kann
+     *                                  oder kein gueltiger Snapshot ist.
+     */
+    public void load(String path) throws IllegalArgumentException {
+        if (committed != null) {
+            throw ErrorType.LOAD_IN_TRANSACTION.exception();
+        }
+        Snapshot snapshot;
+        try {
+            snapshot = Snapshot.read(path);
+        } catch (IOException e) {
+            throw ErrorType.SNAPSHOT_NOT_READ.exception();
+        }
+        // Die Versionsnummern laufen weiter, damit lesende Anfragen auf einer alten
+        // Version keine Aufloesungen des neuen Graphen aus dem Cache bekommen.
+        long nextVersion = graph.getVersion() + 1;
+        graph = snapshot.getGraph();
+        graph.setVersion(nextVersion);
+        order = new TopologicalOrder(graph);
+        for (int id : snapshot.getOrder()) {
+            order.addLast(id);
+        }
+        ProductStructure loaded = new ProductStructure(graph);
+        loaded.setParallel(parallel);
+        pStructure = loaded;
+        index = new ReachabilityIndex(graph);
+        if (!versioned) {
+            published.set(graph);
+        }
+        if (journal != null) {
+            try {
+                journal.replace(Snapshot.encode(graph, order));
+            } catch (IOException e) {
+                throw ErrorType.JOURNAL_NOT_WRITTEN.exception();
+            }
+        }
+    }
+
+    /**
+     * Stellt alle Teile aus dem neuesten Snapshot und dem Journal zu einem
+     * Basispfad wieder her und schreibt danach jede erfolgreiche Aenderung in das
+     * Journal. Die Aenderungen aus dem Journal wurden schon einmal geprueft, sie
+     * werden daher ohne Zyklenpruefung ausgefuehrt, die topologische Ordnung wird
+     * erst am Ende einmal neu berechnet.
+     * 
+     * @param path Basispfad der Dateien des Journals.
+     * @throws IllegalArgumentException falls das Journal nicht gelesen oder
+     *                                  geoeffnet werden kann.
+     */
+    public void openJournal(String path) throws IllegalArgumentException {
+        Journal opened = new Journal(path);
+        if (opened.getSnapshotPath() != null) {
+            load(opened.getSnapshotPath());
+        }
+        replaying = true;
+        try {
+            opened.replay(this);
+        } finally {
+            replaying = false;
+        }
+        order.rebuild();
+        opened.open();
+        journal = opened;
+    }
+
+    /**
+     * Beginnt eine Transaktion. Bis zu commit oder rollback werden neue Kanten
+     * nicht auf Zyklen geprueft und Aenderungen nicht in das Journal geschrieben.
+     * Lesende Anfragen sehen weiter den Stand vor begin.
+     * 
+     * @throws IllegalArgumentException falls bereits eine Transaktion laeuft.
+     */
+    public void begin() throws IllegalArgumentException {
+        if (committed != null) {
+            throw ErrorType.TRANSACTION_RUNNING.exception();
+        }
+        committed = graph.freeze();
+        transactionOwner = Thread.currentThread();
+        stagedEdges = new IntList();
+        index.publish(committed.getVersion());
+        published.set(committed);
+        if (journal != null) {
+            journal.begin();
+        }
+    }
+
+    /**
+     * Beendet eine Transaktion und prueft dabei einmal, ob der Graph zyklenfrei
+     * geblieben ist. Stehen alle neuen Kanten mit der bisherigen topologischen
+     * Ordnung im Einklang, bleibt diese gueltig und die Pruefung kostet nur eine
+     * Operation pro neuer Kante. Sonst wird die Ordnung einmal komplett neu
+     * berechnet. Entsteht dabei ein Zyklus, wird die Transaktion zurueckgesetzt.
+     * 
+     * @throws IllegalArgumentException falls keine Transaktion laeuft oder die
+     *                                  Aenderungen einen Zyklus erzeugen.
+     */
+    public void commit() throws IllegalArgumentException {
+        if (committed == null) {
+            throw ErrorType.NO_TRANSACTION.exception();
+        }
+        if (!isOrderValid() && !order.rebuild()) {
+            rollback();
+            throw ErrorType.TRANSACTION_CREATES_CYCLE.exception();
+        }
+        committed = null;
+        transactionOwner = null;
+        stagedEdges = null;
+        if (journal != null) {
+            journal.commit();
+            compactJournal();
+        }
+        publishCommitted();
+    }
+
+    /**
+     * Beendet eine Transaktion und setzt alle Teile auf den Stand vor begin
+     * zurueck.
+     * 
+     * @throws IllegalArgumentException falls keine Transaktion laeuft.
+     */
+    public void rollback() throws IllegalArgumentException {
+        if (committed == null) {
+            throw ErrorType.NO_TRANSACTION.exception();
+        }
+        // Der Cache enthaelt nur Aufloesungen vom Stand vor begin, da waehrend der
+        // Transaktion nur dieser gelesen wird.
+        graph.restore(committed);
+        order.rebuild();
+        index.rebuild();
+        committed = null;
+        transactionOwner = null;
+        stagedEdges = null;
+        if (journal != null) {
+            journal.rollback();
+        }
+        publishCommitted();
+    }
+
+    /**
+     * Gibt true zurueck, wenn gerade eine Transaktion laeuft, sonst false.
+     * 
+     * @return true, falls eine Transaktion laeuft.
+     */
+    public boolean isInTransaction() {
+        return committed != null;
+    }
+
+    /**
+     * Gibt true zurueck, wenn jede noch vorhandene Kante, die in der Transaktion
+     * hinzugefuegt wurde, von einer Baugruppe mit kleinerer zu einem Teil mit
+     * groesserer Position in der topologischen Ordnung fuehrt. Dann ist die
+     * Ordnung weiterhin gueltig und der Graph zyklenfrei.
+     * 
+     * @return true, falls die Ordnung noch gueltig ist, sonst false.
+     */
+    private boolean isOrderValid() {
+        for (int i = 0; i < stagedEdges.size(); i += 2) {
+            int assembly = stagedEdges.get(i);
+            int subPart = stagedEdges.get(i + 1);
+            if (graph.getAmount(assembly, subPart) != 0
+                    && order.getPosition(assembly) >= order.getPosition(subPart)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Macht nach dem Ende einer Transaktion den aktuellen Stand fuer lesende
+     * Anfragen sichtbar.
+     */
+    private void publishCommitted() {
+        if (versioned) {
+            publish();
+        } else {
+            published.set(graph);
+        }
+    }
+
+    /**
+     * Veroeffentlicht ab jetzt nach jedem Aufruf von publish eine unveraenderliche
+     * Version des Graphen, statt lesende Anfragen direkt auf dem Graphen
+     * auszufuehren. Noetig, sobald gelesen wird, waehrend ein anderer Thread
+     * schreibt.
+     */
+    public void enableVersions() {
+        versioned = true;
+        publish();
+    }
+
+    /**
+     * Macht alle bisherigen Aenderungen fuer lesende Anfragen sichtbar. Muss nach
+     * enableVersions am Ende jedes veraendernden Befehls aufgerufen werden, auch
+     * wenn dieser fehlgeschlagen ist. Veraendert werden dabei nur die Bloecke des
+     * Graphen, die seit der letzten Version geaendert wurden. Waehrend einer
+     * Transaktion bleibt der Stand vor begin veroeffentlicht.
+     */
+    public void publish() {
+        if (versioned && committed == null) {
+            PartGraph frozen = graph.freeze();
+            index.publish(frozen.getVersion());
+            published.set(frozen);
+        }
+    }
+
+    /**
+     * Wartet, bis alle bisherigen Aenderungen im Journal auf dem Datentraeger
+     * liegen. Ohne Journal passiert nichts.
+     */
+    public void sync() {
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    /**
+     * Schreibt alle ausstehenden Aenderungen und schliesst das Journal, falls
+     * eines geoeffnet ist. Die Aenderungen einer nicht beendeten Transaktion
+     * werden dabei verworfen.
+     */
+    public void close() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Beginnt eine neue Generation des Journals, falls dieses zu gross geworden
+     * ist. Der aktuelle Stand wird dazu nur als unveraenderliche Version
+     * abgezogen, kodiert und geschrieben wird er im Hintergrund.
+     */
+    private void compactJournal() {
+        if (committed == null && journal.needsCompaction()) {
+            journal.compact(graph.freeze());
+        }
+    }
+
+    /**
+     * Gibt die Statistiken zurueck, in denen die Dauer der Befehle und die
+     * ausgegebenen Fehlermeldungen gezaehlt werden.
+     * 
+     * @return Statistiken dieser Teile.
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Gibt die Anzahl aller Teile zurueck.
+     * 
+     * @return Anzahl der Baugruppen und Einzelteile.
+     */
+    public int size() {
+        return published.get().size();
+    }
+
+    /**
+     * Gibt die Anzahl aller Kanten von Baugruppen zu ihren direkten Sub-Teilen
+     * zurueck.
+     * 
+     * @return Anzahl der Kanten.
+     */
+    public int getEdgeCount() {
+        return published.get().getSubParts().getEdgeCount();
+    }
+
+    /**
+     * Gibt die Anzahl der Ebenen der tiefsten Baugruppe zurueck. Dazu wird jedes
+     * Teil einmal besucht.
+     * 
+     * @return groesste Tiefe, 0 falls es keine Baugruppe gibt.
+     */
+    public int getMaxDepth() {
+        return pStructure.getMaxDepth(published.get());
+    }
+
+    /**
+     * Gibt den Cache zurueck, in dem die Aufloesungen der Baugruppen gespeichert
+     * werden, etwa um dessen Trefferquote auszulesen.
+     * 
+     * @return Cache der Aufloesungen.
+     */
+    public ExplosionCache getExplosionCache() {
+        return pStructure.getCache();
     }
 
     @Override
     public String toString() {
-        String toReturn = "";
-        for (Map.Entry<String, Part> entry : parts.entrySet()) {
-            toReturn += entry.getKey() + ":" + entry.getValue() + ";";
+        Map<String, Part> parts = new TreeMap<String, Part>();
+        PartGraph version = published.get();
+        for (int id = 0; id < version.getCapacity(); id++) {
+            if (version.getName(id) != null) {
+                parts.put(version.getName(id), new Part(version, id));
+            }
         }
-        if (toReturn.length() > 0 && toReturn.charAt(toReturn.length() - 1) == ';') {
-            toReturn = toReturn.substring(0, toReturn.length() - 1);
+
+        StringBuilder toReturn = new StringBuilder();
+        EntryFormatter formatter = new EntryFormatter(toReturn);
+        for (Map.Entry<String, Part> entry : parts.entrySet()) {
+            formatter.add(entry.getKey(), entry.getValue().toString());
         }
-        return toReturn;
+        return toReturn.toString();
     }
-}
\ No newline at end of file
+}
@@ -22,24 +22,41 @@ public class PartName {
      *                                  Format hat.
      */
     public PartName(String name) throws IllegalArgumentException {
-        if (!isNameValid(name)) {
-            throw new IllegalArgumentException(
-                    "at least one character in the name is not between a-z or A-Z!");
+        this.name = parse(name, 0, name.length());
+    }
+
+    /**
+     * Gibt einen Ausschnitt von line als Namen zurueck, falls dieser im korrekten
+     * Format ist, wirft sonst die selbe Exception wie der Konstruktor. Der
+     * Ausschnitt wird dabei nur einmal durchlaufen und nur einmal kopiert.
+     * 
+     * @param line  String, in dem der Name steht.
+     * @param start Stelle, an der der Name beginnt.
+     * @param end   Stelle nach dem letzten Zeichen des Namens.
+     * @return der Name.
+     * @throws IllegalArgumentException falls der Name das falsche Format hat.
+     */
+    public static String parse(String line, int start, int end) throws IllegalArgumentException {
+        if (!isNameValid(line, start, end)) {
+            throw ErrorType.INVALID_NAME.exception();
         }
-        this.name = name;
+        return line.substring(start, end);
     }
 
     /**
-     * Prueft, ob alle Zeichen des Parameters name zwischen a-z oder A-Z sind. Falls
-     * ja wird true zurueckgegeben, sonst false.
+     * Prueft, ob alle Zeichen eines Ausschnitts von line zwischen a-z oder A-Z
+     * sind, ohne den Ausschnitt zu kopieren. Falls ja wird true zurueckgegeben,
+     * sonst false.
      * 
-     * @param name Zu pruefender Parameter
+     * @param line  String, in dem der Name steht.
+     * @param start Stelle, an der der Name beginnt.
+     * @param end   Stelle nach dem letzten Zeichen des Namens.
      * @return true, falls alle Zeichen zwischen a-z oder A-Z sind, sonst false.
      */
-    private boolean isNameValid(String name) {
-        for (int i = 0; i < name.length(); i++) {
-            if (name.charAt(i) < 65 || (name.charAt(i) > 90 && name.charAt(i) < 97)
-                    || name.charAt(i) > 122) {
+    private static boolean isNameValid(String line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) < 65 || (line.charAt(i) > 90 && line.charAt(i) < 97)
+                    || line.charAt(i) > 122) {
                 return false;
             }
         }
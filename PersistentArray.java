@@ -0,0 +1,119 @@
+package edu.kit.informatik;
+
+import java.util.Arrays;
+
+/**
+ * Ein Array, von dem mit freeze jederzeit eine unveraenderliche Version
+ * abgezogen werden kann, ohne alle Eintraege zu kopieren. Die Eintraege liegen
+ * in Bloecken zu je 256 Eintraegen. Eine Version teilt sich alle Bloecke mit
+ * dem Array, nur das kleine Array der Verweise auf die Bloecke wird kopiert.
+ * Wird danach in einen geteilten Block geschrieben, wird nur dieser Block
+ * kopiert (Path Copying). Bloecke, die seit dem letzten freeze kopiert oder neu
+ * angelegt wurden, gehoeren dem Array allein und werden direkt veraendert.
+ *
+ * <p>Eine Version darf gleichzeitig von mehreren Threads gelesen werden,
+ * waehrend das Array selbst weiter veraendert wird.
+ *
+ * @param <T> Typ der Eintraege.
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class PersistentArray<T> {
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Object[][] chunks;
+    private long[] owners;
+    private long epoch = 0;
+
+    /**
+     * Erstellt ein leeres Array, in dem jeder Eintrag null ist.
+     */
+    public PersistentArray() {
+        this.chunks = new Object[0][];
+        this.owners = new long[0];
+    }
+
+    /**
+     * Erstellt eine unveraenderliche Version aus den gegebenen Bloecken.
+     *
+     * @param chunks Verweise auf die Bloecke der Version.
+     */
+    private PersistentArray(Object[][] chunks) {
+        this.chunks = chunks;
+        this.owners = null;
+    }
+
+    /**
+     * Gibt den Eintrag an einer Stelle zurueck oder null, falls dort nichts
+     * gespeichert ist.
+     *
+     * @param index Stelle des Eintrags.
+     * @return Eintrag an der Stelle oder null.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk >= chunks.length || chunks[chunk] == null) {
+            return null;
+        }
+        return (T) chunks[chunk][index & CHUNK_MASK];
+    }
+
+    /**
+     * Setzt den Eintrag an einer Stelle. Ist der Block der Stelle noch mit einer
+     * Version geteilt, wird er vorher kopiert.
+     *
+     * @param index Stelle des Eintrags.
+     * @param value neuer Eintrag oder null.
+     * @throws UnsupportedOperationException falls dies eine mit freeze erzeugte
+     *                                       Version ist.
+     */
+    public void set(int index, T value) {
+        if (owners == null) {
+            throw new UnsupportedOperationException("a version can't be changed!");
+        }
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk >= chunks.length) {
+            int capacity = Math.max(chunk + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Object[CHUNK_SIZE];
+            owners[chunk] = epoch;
+        } else if (owners[chunk] != epoch) {
+            chunks[chunk] = chunks[chunk].clone();
+            owners[chunk] = epoch;
+        }
+        chunks[chunk][index & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Gibt eine unveraenderliche Version mit den aktuellen Eintraegen zurueck.
+     * Spaetere Aenderungen an diesem Array sind in der Version nicht sichtbar.
+     *
+     * @return unveraenderliche Version des Arrays.
+     */
+    public PersistentArray<T> freeze() {
+        PersistentArray<T> version = new PersistentArray<T>(chunks.clone());
+        epoch++;
+        return version;
+    }
+
+    /**
+     * Gibt ein veraenderbares Array zurueck, das mit den Eintraegen dieses Arrays
+     * beginnt, etwa um zu einer mit freeze erzeugten Version zurueckzukehren.
+     * Alle Bloecke werden geteilt und vor der ersten Aenderung kopiert.
+     *
+     * @return veraenderbares Array mit den aktuellen Eintraegen.
+     */
+    public PersistentArray<T> thaw() {
+        PersistentArray<T> array = new PersistentArray<T>();
+        array.chunks = chunks.clone();
+        array.owners = new long[chunks.length];
+        Arrays.fill(array.owners, -1);
+        return array;
+    }
+}
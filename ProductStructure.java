@@ -1,283 +1,987 @@
 package edu.kit.informatik;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
 
 /**
  * Modelliert eine komplett aufgebaute Produktstruktur. Dadurch koennen die
  * Baugruppen, die Teil einer anderen Baugruppe sind oder deren Einzelteile
- * ermittelt werden. Ausserdem kann so eine Baugruppe auf Zyklenfreiheit
- * geprueft werden. Zyklenfreiheit sei hier so definiert wie in der
- * Aufgabenstellung.
+ * ermittelt werden, und umgekehrt die obersten Baugruppen, in denen ein Teil
+ * steckt. Die Zyklenfreiheit wird beim Einfuegen neuer Teile durch
+ * die TopologicalOrder sichergestellt.
+ * 
+ * <p>Die Aufloesung einer Baugruppe besucht jedes erreichbare Teil genau einmal.
+ * Die Teile werden dazu in topologischer Reihenfolge abgearbeitet, sodass die
+ * Gesamtanzahl eines Teils bereits feststeht, bevor sie an dessen Sub-Teile
+ * weitergegeben wird. Gemeinsam genutzte Sub-Baugruppen werden so nicht fuer
+ * jedes Vorkommen erneut aufgeloest. Die Reihenfolge ergibt sich dabei direkt
+ * aus der Tiefensuche, mit der die erreichbaren Teile gesammelt werden.
+ * 
+ * <p>Aufgeloest wird immer eine mit PartGraph.freeze erzeugte Version oder der
+ * Graph selbst, falls gerade niemand schreibt. invalidate arbeitet dagegen auf
+ * dem Graphen, der veraendert wird.
+ * 
+ * <p>Berechnete Aufloesungen werden in einem ExplosionCache gespeichert. Trifft
+ * eine Aufloesung auf eine Sub-Baugruppe, deren Aufloesung bereits gespeichert
+ * ist, wird diese verwendet, statt erneut in die Sub-Baugruppe abzusteigen.
+ * Nach jeder Aenderung an einem Teil muss invalidate aufgerufen werden.
+ * 
+ * <p>Mehrere Aufloesungen duerfen gleichzeitig laufen, solange der Graph dabei
+ * nicht veraendert wird. Jede Aufloesung leiht sich dazu ihre eigenen
+ * Hilfsarrays aus einem Vorrat, statt sie bei jedem Aufruf neu anzulegen.
+ * 
+ * <p>Im parallelen Modus werden Baugruppen mit vielen direkten Sub-Teilen mit
+ * Fork/Join aufgeloest: Die Sub-Teile werden in Abschnitte aufgeteilt, jeder
+ * Abschnitt loest seine Sub-Baugruppen auf und summiert sie in eigene Arrays,
+ * und die Teilergebnisse werden am Ende in fester Reihenfolge zusammengefuehrt.
+ * Kleine Baugruppen werden weiterhin in einem Thread aufgeloest.
+ * 
+ * <p>Jede Traversierung meldet am Ende ihre Kosten an TraversalCost, jede
+ * Aufloesung zusaetzlich ein ExplosionEvent an den Flight Recorder.
  * 
  * @author Daniel Vollmer
  * @version 2.0
  */
 public class ProductStructure {
-    private TreeMap<String, Part> allParts = new TreeMap<String, Part>();
+    /**
+     * Anzahl der Baugruppen, ab der eine Aufgabe bei getAllComponents nicht
+     * weiter aufgeteilt wird.
+     */
+    private static final int SPLIT_THRESHOLD = 64;
 
     /**
-     * Setzt this.allParts auf eine tiefe Kopie des Paramters allParts. Dies ist
-     * noetig, da eventuell Elemente hinzugefuegt werden, die einen Zyklus
-     * verursachen und dann nicht in der original Map sein sollen.
+     * Anzahl der direkten Sub-Teile, ab der eine Baugruppe im parallelen Modus
+     * parallel aufgeloest wird. Gleichzeitig die groesste Anzahl an Sub-Teilen,
+     * die eine Teilaufgabe selbst zusammenfasst.
+     */
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private PartGraph graph;
+    private ExplosionCache cache = new ExplosionCache();
+    private ConcurrentLinkedQueue<Traversal> traversals = new ConcurrentLinkedQueue<Traversal>();
+    private boolean parallel = false;
+
+    /**
+     * Erstellt eine Produktstruktur fuer den gegebenen Graphen. Der Graph wird
+     * dabei nicht kopiert, spaetere Aenderungen an ihm muessen mit invalidate
+     * gemeldet werden.
      * 
-     * @param allParts Die zu kopierende Map
+     * @param graph Graph aller Teile im System.
      */
-    public ProductStructure(Map<String, Part> allParts) {
-        for (Map.Entry<String, Part> entry : allParts.entrySet()) {
-            String name = new String(entry.getKey());
-            Part part = new Part(entry.getValue());
-            this.allParts.put(name, part);
-        }
+    public ProductStructure(PartGraph graph) {
+        this.graph = graph;
+        cache.advance(graph.getVersion());
+    }
+
+    /**
+     * Schaltet den parallelen Modus ein oder aus. Im parallelen Modus werden
+     * Baugruppen mit mindestens PARALLEL_THRESHOLD direkten Sub-Teilen mit
+     * Fork/Join aufgeloest. Das Ergebnis ist dasselbe wie ohne parallelen Modus.
+     * 
+     * @param parallel true, um den parallelen Modus einzuschalten, sonst false.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
     }
 
     /**
      * Gibt eine Map mit dem Namen und der Anzahl aller indirekten und direkten
      * Einzelteile zurueck, aus denen eine gegebene Baugruppe besteht.
      * 
-     * @param name                 Name der Baugruppe, deren Einzelteile gefunden
-     *                             werden sollen.
-     * @param multiplier           Multiplikator fuer die tieferen Rekursionsebenen.
-     *                             Sollte beim erstmaliegen Aufrufen der Funktion 1
-     *                             sein.
-     * @param finalComponentsParam Map aller Einzelteile und deren Anzahl, die
-     *                             bisher gefunden wurden.
+     * @param version Version des Graphen, die aufgeloest wird.
+     * @param id      Nummer der Baugruppe, deren Einzelteile gefunden werden
+     *                sollen.
      * @return Map mit Anzahl und Namen aller direkten und indirekten Einzelteile
      *         der Baugruppe.
      */
-    public Map<String, Integer> getComponents(String name, int multiplier, Map<String, Integer> finalComponentsParam) {
-        Map<String, Integer> finalComponents = finalComponentsParam;
-        Map<String, Integer> components = new TreeMap<String, Integer>();
-        Map<String, Integer> subParts = allParts.get(name).getSubParts();
-
-        for (Map.Entry<String, Integer> entry : subParts.entrySet()) {
-            components.put(entry.getKey(), entry.getValue() * multiplier);
-        }
-
-        for (Map.Entry<String, Integer> entry : components.entrySet()) {
-            if (allParts.get(entry.getKey()).isComponent()) {
-                finalComponents = addToValues(entry.getKey(), entry.getValue(), finalComponents);
-            } else {
-                finalComponents = getComponents(entry.getKey(), entry.getValue(), finalComponents);
+    public Map<String, Number> getComponents(PartGraph version, int id) {
+        Map<String, Number> finalComponents = new HashMap<String, Number>();
+        Explosion explosion = explode(version, id);
+        for (int i = 0; i < explosion.size(); i++) {
+            if (version.isComponent(explosion.getId(i))) {
+                finalComponents.put(version.getName(explosion.getId(i)), explosion.getTotal(i));
             }
-
         }
         return finalComponents;
-
     }
 
     /**
      * Gibt eine Map mit dem Namen und der Anzahl aller indirekten und direkten
      * Baugruppen zurueck, aus denen eine gegebene Baugruppe besteht.
      * 
-     * @param name                 Name der Baugruppe, deren Baugruppen gefunden
-     *                             werden sollen.
-     * @param multiplier           Multiplikator fuer die tieferen Rekursionsebenen.
-     *                             Sollte beim erstmaliegen Aufrufen der Funktion 1
-     *                             sein.
-     * @param finalAssembliesParam Map aller Baugruppen und deren Anzahl, die bisher
-     *                             gefunden wurden.
+     * @param version Version des Graphen, die aufgeloest wird.
+     * @param id      Nummer der Baugruppe, deren Baugruppen gefunden werden
+     *                sollen.
      * @return Map mit Anzahl und Namen aller direkten und indirekten Baugruppen,
      *         aus denen die gegebene Baugruppe besteht.
      */
-    public Map<String, Integer> getAssemblies(String name, int multiplier, Map<String, Integer> finalAssembliesParam) {
-        Map<String, Integer> finalAssemblies = finalAssembliesParam;
-        Map<String, Integer> assemblies = new TreeMap<String, Integer>();
-        Map<String, Integer> subParts = allParts.get(name).getSubParts();
-
-        for (Map.Entry<String, Integer> entry : subParts.entrySet()) {
-            if (!allParts.get(entry.getKey()).isComponent()) {
-                assemblies.put(entry.getKey(), entry.getValue() * multiplier);
+    public Map<String, Number> getAssemblies(PartGraph version, int id) {
+        Map<String, Number> finalAssemblies = new HashMap<String, Number>();
+        Explosion explosion = explode(version, id);
+        for (int i = 0; i < explosion.size(); i++) {
+            if (!version.isComponent(explosion.getId(i))) {
+                finalAssemblies.put(version.getName(explosion.getId(i)), explosion.getTotal(i));
             }
         }
+        return finalAssemblies;
+    }
 
-        for (Map.Entry<String, Integer> entry : assemblies.entrySet()) {
-            if (areAllSubPartsComponents(entry.getKey())) {
-                finalAssemblies = addToValues(entry.getKey(), entry.getValue(), finalAssemblies);
-            } else {
-                finalAssemblies = addToValues(entry.getKey(), entry.getValue(), finalAssemblies);
-                finalAssemblies = getAssemblies(entry.getKey(), entry.getValue(), finalAssemblies);
+    /**
+     * Gibt eine Map mit dem Namen aller obersten Baugruppen, die ein Teil direkt
+     * oder indirekt enthalten, und der Gesamtanzahl des Teils darin zurueck.
+     * Oberste Baugruppen sind solche, die in keiner anderen Baugruppe vorkommen.
+     * 
+     * <p>Dazu werden alle Baugruppen, die das Teil enthalten, mit einer
+     * Tiefensuche ueber den Verwendungsnachweis gesammelt, jede genau einmal.
+     * In der umgekehrten Reihenfolge, in der die Tiefensuche die Baugruppen
+     * verlaesst, steht jede Baugruppe nach allen ihren Sub-Teilen, die das Teil
+     * enthalten. Ihre Gesamtanzahl steht also fest, bevor sie mit der Anzahl
+     * multipliziert an die uebergeordneten Baugruppen weitergegeben wird.
+     * 
+     * @param version Version des Graphen.
+     * @param id      Nummer des Teils.
+     * @return Map mit Namen und Gesamtanzahl aller obersten Baugruppen, die das
+     *         Teil enthalten. Leer, falls das Teil in keiner Baugruppe vorkommt.
+     */
+    public Map<String, Number> getUsedIn(PartGraph version, int id) {
+        Traversal traversal = borrow(version);
+        Amounts amounts = traversal.amounts;
+        int[] visited = traversal.visited;
+        int visitMark = ++traversal.visitMark;
+        Adjacency superParts = version.getSuperParts();
+        IntList finished = new IntList();
+        IntList stack = new IntList();
+        IntList nextIndex = new IntList();
+        stack.add(id);
+        nextIndex.add(0);
+        visited[id] = visitMark;
+        amounts.clear(id);
+        int edges = 0;
+        int depth = 0;
+
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            int current = stack.get(top);
+            int index = nextIndex.get(top);
+            if (index == superParts.getDegree(current)) {
+                stack.removeLast();
+                nextIndex.removeLast();
+                finished.add(current);
+                continue;
+            }
+
+            nextIndex.set(top, index + 1);
+            edges++;
+            int superPart = superParts.getTarget(current, index);
+            if (visited[superPart] != visitMark) {
+                visited[superPart] = visitMark;
+                amounts.clear(superPart);
+                stack.add(superPart);
+                nextIndex.add(0);
+                depth = Math.max(depth, stack.size() - 1);
             }
         }
-        return finalAssemblies;
 
+        Map<String, Number> usedIn = new HashMap<String, Number>();
+        amounts.add(id, 1);
+        for (int i = finished.size() - 1; i >= 0; i--) {
+            int current = finished.get(i);
+            if (superParts.getDegree(current) == 0 && current != id) {
+                usedIn.put(version.getName(current), amounts.get(current));
+            }
+            for (int j = 0; j < superParts.getDegree(current); j++) {
+                amounts.addProduct(superParts.getTarget(current, j), superParts.getValue(current, j), amounts, current);
+            }
+        }
+        traversals.offer(traversal);
+        TraversalCost.count(finished.size(), edges, depth, 0);
+        return usedIn;
     }
 
     /**
-     * Gibt true zurueck, wenn alle direkten Teile, aus denen eine Baugruppe besteht
-     * Einzelteile sind, sonst false.
+     * Berechnet fuer mehrere Bedarfe auf einmal den Brutto- und Nettobedarf aller
+     * benoetigten Teile. Der Bruttobedarf eines Teils ist sein eigener Bedarf plus
+     * der Nettobedarf jeder Baugruppe, die es enthaelt, mal der Anzahl darin. Der
+     * Nettobedarf ist der Bruttobedarf abzueglich des Lagerbestands, mindestens 0.
+     * 
+     * <p>Alle benoetigten Teile werden mit einer Tiefensuche von allen Bedarfen
+     * aus gesammelt und in der umgekehrten Reihenfolge, in der die Tiefensuche
+     * sie verlaesst, abgearbeitet. Das entspricht der Reihenfolge nach
+     * Dispositionsstufen: Der Bruttobedarf eines Teils steht fest, bevor es an
+     * der Reihe ist. Gemeinsam genutzte Sub-Baugruppen werden so fuer alle
+     * Bedarfe zusammen genau einmal aufgeloest.
      * 
-     * @param name Name der zu pruefenden Baugruppe.
-     * @return true, wenn alle direkten Teile, aus denen die Baugruppe besteht
-     *         Einzelteile sind, sonst false.
+     * @param version      Version des Graphen.
+     * @param ids          Nummern der Teile mit Bedarf.
+     * @param demands      Bedarf des Teils an derselben Stelle in ids.
+     * @param stockIds     Nummern der Teile mit Lagerbestand. Alle anderen Teile
+     *                     haben den Bestand 0.
+     * @param stockAmounts Lagerbestand des Teils an derselben Stelle in stockIds.
+     * @return Brutto- und Nettobedarf aller benoetigten Teile.
      */
-    private boolean areAllSubPartsComponents(String name) {
-        for (Map.Entry<String, Integer> entry : allParts.get(name).getSubParts().entrySet()) {
-            if (!allParts.get(entry.getKey()).isComponent()) {
-                return false;
+    public Requirements getRequirements(PartGraph version, int[] ids, int[] demands, int[] stockIds,
+            int[] stockAmounts) {
+        Traversal traversal = borrow(version);
+        Amounts amounts = traversal.amounts;
+        int[] stock = traversal.stock;
+        int[] visited = traversal.visited;
+        int visitMark = ++traversal.visitMark;
+        Adjacency subParts = version.getSubParts();
+        IntList finished = new IntList();
+        IntList stack = new IntList();
+        IntList nextIndex = new IntList();
+        int edges = 0;
+        int depth = 0;
+
+        for (int root : ids) {
+            if (visited[root] == visitMark) {
+                continue;
             }
+            stack.add(root);
+            nextIndex.add(0);
+            visited[root] = visitMark;
+            amounts.clear(root);
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                int current = stack.get(top);
+                int index = nextIndex.get(top);
+                if (index == subParts.getDegree(current)) {
+                    stack.removeLast();
+                    nextIndex.removeLast();
+                    finished.add(current);
+                    continue;
+                }
+
+                nextIndex.set(top, index + 1);
+                edges++;
+                int subPart = subParts.getTarget(current, index);
+                if (visited[subPart] != visitMark) {
+                    visited[subPart] = visitMark;
+                    amounts.clear(subPart);
+                    stack.add(subPart);
+                    nextIndex.add(0);
+                    depth = Math.max(depth, stack.size() - 1);
+                }
+            }
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            amounts.add(ids[i], demands[i]);
+        }
+        for (int i = 0; i < stockIds.length; i++) {
+            stock[stockIds[i]] = stockAmounts[i];
         }
-        return true;
+        // Nachdem der Bruttobedarf eines Teils festgehalten ist, steht an seiner
+        // Stelle der Nettobedarf, der an die Sub-Teile weitergegeben wird.
+        Map<String, Number> gross = new HashMap<String, Number>();
+        Map<String, Number> net = new HashMap<String, Number>();
+        for (int i = finished.size() - 1; i >= 0; i--) {
+            int current = finished.get(i);
+            if (amounts.isZero(current)) {
+                continue;
+            }
+            gross.put(version.getName(current), amounts.get(current));
+            amounts.subtract(current, stock[current]);
+            if (!amounts.isZero(current)) {
+                net.put(version.getName(current), amounts.get(current));
+                for (int j = 0; j < subParts.getDegree(current); j++) {
+                    amounts.addProduct(subParts.getTarget(current, j), subParts.getValue(current, j), amounts, current);
+                }
+            }
+        }
+        // stock bleibt fuer den naechsten Durchlauf ueberall 0.
+        for (int stockId : stockIds) {
+            stock[stockId] = 0;
+        }
+        traversals.offer(traversal);
+        TraversalCost.count(finished.size(), edges, depth, 0);
+        return new Requirements(gross, net);
     }
 
     /**
-     * Fuegt einer Map einen Eintrag hinzu. Falls der Key schon existiert, wird
-     * amount auf die Zahl, die zu dem passenden Key in der Map gehoert aufaddiert
-     * und wieder in der Map gespeichert.
+     * Gibt die groesste Tiefe aller Baugruppen zurueck, also die Anzahl der Kanten
+     * auf dem laengsten Weg von einer Baugruppe zu einem Einzelteil. Jedes Teil
+     * wird dazu in einer Tiefensuche genau einmal besucht und seine Tiefe aus den
+     * Tiefen seiner Sub-Teile berechnet, sobald diese feststehen.
      * 
-     * @param name   Schluessel des neuen Eintrags.
-     * @param amount Wert des neuen Eintrags.
-     * @param toAdd  Map, bei der ein Element veraendert werden soll.
-     * @return die leicht veraenderte Map toAdd
+     * @param version Version des Graphen.
+     * @return groesste Tiefe, 0 falls es keine Baugruppe gibt.
      */
-    private Map<String, Integer> addToValues(String name, int amount, Map<String, Integer> toAdd) {
-        Map<String, Integer> result = toAdd;
-
-        if (toAdd.containsKey(name)) {
-            result.put(name, amount + toAdd.get(name));
-        } else {
-            result.put(name, amount);
-        }
-        return result;
+    public int getMaxDepth(PartGraph version) {
+        Traversal traversal = borrow(version);
+        int maxDepth = computeDepths(version, traversal);
+        traversals.offer(traversal);
+        return maxDepth;
     }
 
     /**
-     * Erhoeht die Anzahl eines Teils einer Baugruppe in der Testumgebung. Das
-     * heit, dass das Teil nicht in der eigentlichen Map aller Teile veraendert
-     * wird.
+     * Gibt fuer jede Baugruppe eines Graphen die Gesamtanzahl aller direkten und
+     * indirekten Einzelteile an consumer weiter, wie getComponents, aber fuer alle
+     * Baugruppen in einem Durchlauf.
+     * 
+     * <p>Die Baugruppen werden nach ihrer Tiefe (laengster Weg zu einem
+     * Einzelteil) in Stufen eingeteilt und von unten nach oben abgearbeitet. Die
+     * Einzelteile einer Baugruppe ergeben sich aus denen ihrer direkten
+     * Sub-Baugruppen, die in einer tieferen Stufe schon berechnet wurden. Jede
+     * gemeinsam genutzte Sub-Baugruppe wird so nur einmal aufgeloest. Die
+     * Baugruppen einer Stufe haengen nicht voneinander ab und werden mit
+     * Fork/Join parallel berechnet.
      * 
-     * @param assemblyName Name der Baugruppe, bei dem die Anzahl eines Teils
-     *                     veraendert werden soll.
-     * @param amount       Zahl, um die die Anzahl veraendert werden soll.
-     * @param subPartName  Teil, bei welchem die Anzahl veraendert werden soll.
+     * <p>consumer wird im aufrufenden Thread nach jeder Stufe fuer deren
+     * Baugruppen aufgerufen, sortiert nach Namen. Danach werden die Ergebnisse
+     * aller Baugruppen verworfen, deren uebergeordnete Baugruppen alle berechnet
+     * sind. Gleichzeitig gehalten werden also nur die Ergebnisse, die noch
+     * gebraucht werden.
+     * 
+     * @param version  Version des Graphen.
+     * @param consumer erhaelt den Namen jeder Baugruppe und eine Map mit Namen und
+     *                 Gesamtanzahl ihrer Einzelteile.
+     * @return Anzahl der Baugruppen, die an consumer weitergegeben wurden.
      */
-    private void incAmtOfPartInTestEnvironment(String assemblyName, int amount, String subPartName) {
-        Part assembly = allParts.get(assemblyName);
-        assembly.incAmount(subPartName, amount);
+    public int getAllComponents(PartGraph version, BiConsumer<String, Map<String, Number>> consumer) {
+        Traversal traversal = borrow(version);
+        int maxDepth = computeDepths(version, traversal);
+        int[] depths = traversal.depths;
+        Adjacency subParts = version.getSubParts();
+        Adjacency superParts = version.getSuperParts();
+        int[] remainingParents = new int[version.getCapacity()];
+        String[] names = new String[version.getCapacity()];
+        int[] levelStarts = new int[maxDepth + 2];
+        int nodes = 0;
+        int edges = 0;
+        for (int id = 0; id < version.getCapacity(); id++) {
+            if (version.getName(id) != null && !version.isComponent(id)) {
+                names[nodes] = version.getName(id);
+                levelStarts[depths[id] + 1]++;
+                remainingParents[id] = superParts.getDegree(id);
+                nodes++;
+                edges += subParts.getDegree(id);
+            }
+        }
 
+        // Die Baugruppen werden einmal nach Namen sortiert und in dieser
+        // Reihenfolge auf die Stufen verteilt. Stufe d steht in ids zwischen
+        // levelStarts[d] und levelStarts[d + 1].
+        Arrays.sort(names, 0, nodes);
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            levelStarts[depth + 1] += levelStarts[depth];
+        }
+        int[] next = Arrays.copyOf(levelStarts, maxDepth + 1);
+        int[] ids = new int[nodes];
+        for (int rank = 0; rank < nodes; rank++) {
+            int id = version.getId(names[rank]);
+            ids[next[depths[id]]++] = id;
+        }
+        traversals.offer(traversal);
+
+        Explosion[] components = new Explosion[version.getCapacity()];
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            int start = levelStarts[depth];
+            int end = levelStarts[depth + 1];
+            if (start == end) {
+                continue;
+            }
+            ForkJoinPool.commonPool().invoke(new LevelTask(version, ids, start, end, components));
+
+            for (int j = start; j < end; j++) {
+                int id = ids[j];
+                Explosion explosion = components[id];
+                Map<String, Number> toReturn = new HashMap<String, Number>();
+                for (int i = 0; i < explosion.size(); i++) {
+                    toReturn.put(version.getName(explosion.getId(i)), explosion.getTotal(i));
+                }
+                consumer.accept(version.getName(id), toReturn);
+            }
+            for (int j = start; j < end; j++) {
+                int id = ids[j];
+                if (remainingParents[id] == 0) {
+                    components[id] = null;
+                }
+                for (int i = 0; i < subParts.getDegree(id); i++) {
+                    int subPart = subParts.getTarget(id, i);
+                    if (--remainingParents[subPart] == 0) {
+                        components[subPart] = null;
+                    }
+                }
+            }
+        }
+        TraversalCost.count(nodes, edges, maxDepth, 0);
+        return nodes;
     }
 
     /**
-     * Fuegt ein Teil der Testumgebung hinzu. Das heit, dass das Teil nicht der
-     * eigentlichen Map aller Teile zugefuegt wird.
+     * Berechnet die Einzelteile einer Baugruppe aus ihren direkten Sub-Teilen.
+     * Die Einzelteile aller direkten Sub-Baugruppen muessen in components schon
+     * berechnet sein.
      * 
-     * @param name    Name des hinzuzufuegenden Teils.
-     * @param newPart Das hinzuzufuegende Teil.
+     * @param version    Version des Graphen.
+     * @param id         Nummer der Baugruppe.
+     * @param components berechnete Einzelteile, nach Nummer indiziert.
+     * @return Einzelteile der Baugruppe mit ihrer Gesamtanzahl.
      */
-    private void addPartToTestEnvironment(String name, Part newPart) {
-        for (Map.Entry<String, Integer> entry : newPart.getSubParts().entrySet()) {
-            if (!allParts.containsKey(entry.getKey())) {
-                allParts.put(entry.getKey(), new Part());
+    private Explosion mergeComponents(PartGraph version, int id, Explosion[] components) {
+        Traversal traversal = borrow(version);
+        ++traversal.visitMark;
+        Adjacency subParts = version.getSubParts();
+        IntList found = new IntList();
+        for (int i = 0; i < subParts.getDegree(id); i++) {
+            int subPart = subParts.getTarget(id, i);
+            int amount = subParts.getValue(id, i);
+            if (version.isComponent(subPart)) {
+                accumulate(traversal, found, subPart, amount);
+            } else {
+                accumulate(traversal, found, components[subPart], amount);
             }
         }
-        allParts.put(name, newPart);
+        return collect(traversal, found);
     }
 
     /**
-     * Prueft, ob die Map aller Teile immer noch zyklusfrei ist, wenn ein neues Teil
-     * hinzugefuegt wird. Gibt wahr zurueck, wenn die Map dann immer noch zyklusfrei
-     * ist, sonst false.
+     * Loest einen Abschnitt der direkten Sub-Teile einer Baugruppe in einem Thread
+     * auf: Jedes Sub-Teil wird mit seiner Anzahl gezaehlt, jede Sub-Baugruppe
+     * zusaetzlich mit explode aufgeloest und mit ihrer Anzahl multipliziert. Die
+     * Kosten dieser Aufloesungen werden nicht an TraversalCost gemeldet.
      * 
-     * @param name    Name des neuen Teils.
-     * @param newPart Neues Teil.
-     * @return true, wenn die Map nach hinzufuegen des neuen Teils noch zyklusfrei
-     *         ist, sonst false.
+     * @param version Version des Graphen.
+     * @param id      Nummer der Baugruppe.
+     * @param start   Stelle des ersten Sub-Teils des Abschnitts.
+     * @param end     Stelle nach dem letzten Sub-Teil des Abschnitts.
+     * @return alle Teile, die ueber den Abschnitt in der Baugruppe vorkommen, mit
+     *         ihrer Anzahl.
      */
-    public boolean areAllCycleFree(String name, Part newPart) {
-        addPartToTestEnvironment(name, newPart);
-        return areAllCycleFree(name);
+    private Explosion explodeSubParts(PartGraph version, int id, int start, int end) {
+        boolean counting = TraversalCost.pause();
+        Traversal traversal = borrow(version);
+        ++traversal.visitMark;
+        Adjacency subParts = version.getSubParts();
+        IntList found = new IntList();
+        for (int i = start; i < end; i++) {
+            int subPart = subParts.getTarget(id, i);
+            int amount = subParts.getValue(id, i);
+            accumulate(traversal, found, subPart, amount);
+            if (!version.isComponent(subPart)) {
+                accumulate(traversal, found, explode(version, subPart), amount);
+            }
+        }
+        TraversalCost.resume(counting);
+        return collect(traversal, found);
     }
 
     /**
-     * Prueft ob die Map aller Teile immer noch zyklusfrei ist, wenn die Anzahl
-     * eines Teils, aus dem eine Baugruppe besteht veraendert wird. Gibt true
-     * zurueck, wenn die Map danach immer noch zyklusfrei ist, sonst false.
+     * Fuehrt zwei Teilergebnisse einer parallelen Aufloesung zusammen. Die Teile
+     * von first stehen dabei vor den Teilen, die nur in second vorkommen.
      * 
-     * @param assemblyName Baugruppe, bei der ein Sub-Teil veraendert wird.
-     * @param amount       Zahl, um die die Anzahl erhoeht wird.
-     * @param subPartName  Name des Teils, bei dem die Anzahl veraendert wird.
-     * @return true, wenn die Map nach dem veraendern der Anzahl immer noch
-     *         zyklusfrei ist, sonst false.
+     * @param version Version des Graphen.
+     * @param first   erstes Teilergebnis.
+     * @param second  zweites Teilergebnis.
+     * @return Summe beider Teilergebnisse.
      */
-    public boolean areAllCycleFree(String assemblyName, int amount, String subPartName) {
-        incAmtOfPartInTestEnvironment(assemblyName, amount, subPartName);
-        return areAllCycleFree(assemblyName);
+    private Explosion merge(PartGraph version, Explosion first, Explosion second) {
+        Traversal traversal = borrow(version);
+        ++traversal.visitMark;
+        IntList found = new IntList();
+        accumulate(traversal, found, first, 1);
+        accumulate(traversal, found, second, 1);
+        return collect(traversal, found);
+    }
 
+    /**
+     * Addiert amount zur Anzahl eines Teils in traversal.amounts. Wird das Teil
+     * seit dem letzten Erhoehen von traversal.visitMark zum ersten Mal gezaehlt,
+     * wird seine Anzahl vorher auf 0 gesetzt und es in found eingetragen.
+     * 
+     * @param traversal Hilfsarrays, in denen gezaehlt wird.
+     * @param found     bisher gezaehlte Teile in der Reihenfolge ihres Auftretens.
+     * @param id        Nummer des Teils.
+     * @param amount    zu addierende Anzahl.
+     */
+    private static void accumulate(Traversal traversal, IntList found, int id, int amount) {
+        visit(traversal, found, id);
+        traversal.amounts.add(id, amount);
     }
 
     /**
-     * Ueberprueft alle Teile der Map allParts auf Zyklenfreiheit, beginnend mit dem
-     * Teil dessen Name dem Wert von first entspricht. Sind alle Teile zyklenfrei,
-     * wird true zurueckgegeben, sonst false.
+     * Addiert alle Teile einer Aufloesung, jeweils mit multiplier multipliziert,
+     * wie accumulate fuer ein einzelnes Teil.
      * 
-     * @param first Name des Teils, mit dem begonnen werden soll.
-     * @return true, wenn alle Teile in der Map allParts zyklenfrei sind, sonst
-     *         false.
+     * @param traversal  Hilfsarrays, in denen gezaehlt wird.
+     * @param found      bisher gezaehlte Teile in der Reihenfolge ihres Auftretens.
+     * @param explosion  zu addierende Aufloesung.
+     * @param multiplier Faktor fuer jede Anzahl der Aufloesung.
      */
-    private boolean areAllCycleFree(String first) {
-        // Fuer den Fall, dass z.b. Y=1:Y;1:Z
-        if (!isCycleFree(first)) {
-            return false;
+    private static void accumulate(Traversal traversal, IntList found, Explosion explosion, int multiplier) {
+        for (int i = 0; i < explosion.size(); i++) {
+            visit(traversal, found, explosion.getId(i));
+            traversal.amounts.addProduct(explosion.getId(i), multiplier, explosion, i);
         }
+    }
 
-        for (Map.Entry<String, Part> entry : allParts.entrySet()) {
-            if (!isCycleFree(entry.getKey())) {
-                return false;
-            }
+    /**
+     * Setzt die Anzahl eines Teils auf 0 und traegt es in found ein, falls es
+     * seit dem letzten Erhoehen von traversal.visitMark noch nicht gezaehlt wurde.
+     * 
+     * @param traversal Hilfsarrays, in denen gezaehlt wird.
+     * @param found     bisher gezaehlte Teile in der Reihenfolge ihres Auftretens.
+     * @param id        Nummer des Teils.
+     */
+    private static void visit(Traversal traversal, IntList found, int id) {
+        if (traversal.visited[id] != traversal.visitMark) {
+            traversal.visited[id] = traversal.visitMark;
+            traversal.amounts.clear(id);
+            found.add(id);
         }
-        return true;
     }
 
     /**
-     * Prueft, ob ein Teil in der Map allParts zyklenfrei ist. Gibt true zurueck,
-     * wenn das Teil zyklenfrei ist, sonst false.
+     * Erstellt aus den gezaehlten Teilen ein Ergebnis und gibt die Hilfsarrays
+     * zurueck in den Vorrat.
      * 
-     * @param toCheck Teil, welches ueberprueft werden soll.
-     * @return true, wenn das Teil zyklenfrei ist, sonst false.
+     * @param traversal Hilfsarrays, in denen gezaehlt wurde.
+     * @param found     gezaehlte Teile in der Reihenfolge ihres Auftretens.
+     * @return gezaehlte Teile mit ihrer Anzahl.
      */
-    private boolean isCycleFree(String toCheck) {
-        List<String> list = new ArrayList<String>();
-        list.add(toCheck);
+    private Explosion collect(Traversal traversal, IntList found) {
+        Explosion explosion = traversal.amounts.toExplosion(found.toArray());
+        traversals.offer(traversal);
+        return explosion;
+    }
 
-        boolean containsOnlyComponents = false;
+    /**
+     * Loest einen Abschnitt der direkten Sub-Teile einer Baugruppe parallel auf.
+     * Abschnitte mit mehr als PARALLEL_THRESHOLD Sub-Teilen werden halbiert, die
+     * erste Haelfte in einem anderen Thread und die zweite im aktuellen Thread
+     * aufgeloest. Die Teilergebnisse werden immer in derselben Reihenfolge
+     * zusammengefuehrt, das Ergebnis haengt also nicht davon ab, welcher Thread
+     * welchen Abschnitt aufloest.
+     */
+    private class ExplosionTask extends RecursiveTask<Explosion> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient PartGraph version;
+        private final int id;
+        private final int start;
+        private final int end;
+
+        /**
+         * Erstellt die Aufgabe fuer einen Abschnitt der Sub-Teile einer Baugruppe.
+         * 
+         * @param version Version des Graphen.
+         * @param id      Nummer der Baugruppe.
+         * @param start   Stelle des ersten Sub-Teils des Abschnitts.
+         * @param end     Stelle nach dem letzten Sub-Teil des Abschnitts.
+         */
+        private ExplosionTask(PartGraph version, int id, int start, int end) {
+            this.version = version;
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
 
-        if (allParts.get(toCheck).isComponent()) {
-            return true;
+        @Override
+        protected Explosion compute() {
+            if (end - start <= PARALLEL_THRESHOLD) {
+                return explodeSubParts(version, id, start, end);
+            }
+            int middle = (start + end) >>> 1;
+            ExplosionTask first = new ExplosionTask(version, id, start, middle);
+            first.fork();
+            Explosion second = new ExplosionTask(version, id, middle, end).compute();
+            return merge(version, first.join(), second);
         }
+    }
 
-        while (!containsOnlyComponents) {
-            containsOnlyComponents = true;
-            int listSize = list.size();
-            for (int i = 0; i < listSize; i++) {
+    /**
+     * Berechnet in einem Thread des Fork/Join-Pools die Einzelteile eines
+     * Abschnitts der Baugruppen einer Stufe. Grosse Abschnitte werden halbiert
+     * und parallel berechnet.
+     */
+    private class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient PartGraph version;
+        private final int[] ids;
+        private final int start;
+        private final int end;
+        private final Explosion[] components;
+
+        /**
+         * Erstellt die Aufgabe fuer einen Abschnitt der Baugruppen einer Stufe.
+         * 
+         * @param version    Version des Graphen.
+         * @param ids        Nummern der Baugruppen, nach Stufen geordnet.
+         * @param start      erste Stelle des Abschnitts in ids.
+         * @param end        Stelle nach dem Ende des Abschnitts in ids.
+         * @param components berechnete Einzelteile, nach Nummer indiziert.
+         */
+        private LevelTask(PartGraph version, int[] ids, int start, int end, Explosion[] components) {
+            this.version = version;
+            this.ids = ids;
+            this.start = start;
+            this.end = end;
+            this.components = components;
+        }
 
-                List<String> subParts = new ArrayList<String>();
+        @Override
+        protected void compute() {
+            if (end - start <= SPLIT_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    components[ids[i]] = mergeComponents(version, ids[i], components);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new LevelTask(version, ids, start, middle, components),
+                    new LevelTask(version, ids, middle, end, components));
+        }
+    }
 
-                for (Map.Entry<String, Integer> entry : allParts.get(list.get(i)).getSubParts().entrySet()) {
-                    subParts.add(entry.getKey());
+    /**
+     * Berechnet die Tiefe jedes Teils, also die Anzahl der Kanten auf dem
+     * laengsten Weg von dem Teil zu einem Einzelteil, und speichert sie in
+     * traversal.depths. Jedes Teil wird dazu in einer Tiefensuche genau einmal
+     * besucht und seine Tiefe aus den Tiefen seiner Sub-Teile berechnet, sobald
+     * diese feststehen.
+     * 
+     * @param version   Version des Graphen.
+     * @param traversal Hilfsarrays, in deren depths die Tiefen stehen.
+     * @return groesste Tiefe, 0 falls es keine Baugruppe gibt.
+     */
+    private int computeDepths(PartGraph version, Traversal traversal) {
+        int[] depths = traversal.depths;
+        int[] visited = traversal.visited;
+        int visitMark = ++traversal.visitMark;
+        Adjacency subParts = version.getSubParts();
+        IntList stack = new IntList();
+        IntList nextIndex = new IntList();
+        int maxDepth = 0;
+        int nodes = 0;
+        int edges = 0;
+
+        for (int root = 0; root < version.getCapacity(); root++) {
+            if (version.getName(root) == null || visited[root] == visitMark) {
+                continue;
+            }
+            stack.add(root);
+            nextIndex.add(0);
+            visited[root] = visitMark;
+            depths[root] = 0;
+            nodes++;
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                int current = stack.get(top);
+                int index = nextIndex.get(top);
+                if (index == subParts.getDegree(current)) {
+                    stack.removeLast();
+                    nextIndex.removeLast();
+                    maxDepth = Math.max(maxDepth, depths[current]);
+                    if (!stack.isEmpty()) {
+                        int parent = stack.get(stack.size() - 1);
+                        depths[parent] = Math.max(depths[parent], depths[current] + 1);
+                    }
+                    continue;
                 }
 
-                String currentPart = list.get(i);
+                nextIndex.set(top, index + 1);
+                edges++;
+                int subPart = subParts.getTarget(current, index);
+                if (visited[subPart] != visitMark) {
+                    visited[subPart] = visitMark;
+                    depths[subPart] = 0;
+                    nodes++;
+                    stack.add(subPart);
+                    nextIndex.add(0);
+                } else {
+                    depths[current] = Math.max(depths[current], depths[subPart] + 1);
+                }
+            }
+        }
+        TraversalCost.count(nodes, edges, maxDepth, 0);
+        return maxDepth;
+    }
 
-                if (subParts.size() != 0) {
-                    list.remove(currentPart);
-                    list.addAll(subParts);
+    /**
+     * Entfernt die gespeicherten Aufloesungen eines veraenderten Teils und aller
+     * Baugruppen, die es direkt oder indirekt enthalten. Muss nach jeder
+     * Aenderung an den Sub-Teilen eines Teils und vor dem Entfernen eines Teils
+     * aufgerufen werden.
+     * 
+     * @param id Nummer des veraenderten Teils.
+     */
+    public void invalidate(int id) {
+        cache.advance(graph.getVersion());
+        if (cache.isEmpty()) {
+            return;
+        }
+        Traversal traversal = borrow(graph);
+        int[] visited = traversal.visited;
+        int visitMark = ++traversal.visitMark;
+        Adjacency superParts = graph.getSuperParts();
+        IntList stack = new IntList();
+        stack.add(id);
+        visited[id] = visitMark;
+        int nodes = 0;
+        int edges = 0;
+
+        while (!stack.isEmpty()) {
+            int current = stack.removeLast();
+            cache.remove(current);
+            nodes++;
+            edges += superParts.getDegree(current);
+            for (int i = 0; i < superParts.getDegree(current); i++) {
+                int superPart = superParts.getTarget(current, i);
+                if (visited[superPart] != visitMark) {
+                    visited[superPart] = visitMark;
+                    stack.add(superPart);
                 }
+            }
+        }
+        traversals.offer(traversal);
+        TraversalCost.count(nodes, edges, 0, 0);
+    }
 
-                if (list.contains(toCheck)) {
-                    return false;
+    /**
+     * Gibt den Cache zurueck, in dem die berechneten Aufloesungen gespeichert
+     * werden.
+     * 
+     * @return Cache der Aufloesungen.
+     */
+    public ExplosionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Loest eine Baugruppe vollstaendig auf und gibt fuer jedes direkt oder
+     * indirekt enthaltene Teil zurueck, wie oft es insgesamt in der Baugruppe
+     * vorkommt. Ist die Aufloesung bereits im Cache, wird sie direkt verwendet.
+     * Im parallelen Modus werden Baugruppen mit vielen direkten Sub-Teilen mit
+     * einer ExplosionTask aufgeloest. An TraversalCost werden dann nur die Anzahl
+     * der gefundenen Teile und der direkten Sub-Teile gemeldet.
+     * 
+     * @param version Version des Graphen, die aufgeloest wird.
+     * @param id      Nummer der aufzuloesenden Baugruppe.
+     * @return Aufloesung der Baugruppe.
+     */
+    private Explosion explode(PartGraph version, int id) {
+        FlightEvents.ExplosionEvent event = new FlightEvents.ExplosionEvent();
+        event.begin();
+        Explosion cached = cache.get(id, version.getVersion());
+        if (cached != null) {
+            TraversalCost.count(0, 0, 0, 1);
+            commit(event, version, id, cached, 0);
+            return cached;
+        }
+
+        int degree = version.getSubParts().getDegree(id);
+        if (parallel && degree >= PARALLEL_THRESHOLD) {
+            Explosion explosion = new ExplosionTask(version, id, 0, degree).invoke();
+            TraversalCost.count(explosion.size(), degree, 1, 0);
+            cache.put(id, explosion, version.getVersion());
+            commit(event, version, id, explosion, explosion.size());
+            return explosion;
+        }
+
+        Traversal traversal = borrow(version);
+        Amounts amounts = traversal.amounts;
+        Amounts reusedAmounts = traversal.reusedAmounts;
+        Explosion[] reused = traversal.reused;
+        int[] visited = traversal.visited;
+        Adjacency subParts = version.getSubParts();
+        IntList reachable = getReachable(version, id, traversal);
+        int visitMark = traversal.visitMark;
+        IntList others = new IntList();
+        int reusedEntries = 0;
+        amounts.add(id, 1);
+
+        // Die Anzahl eines Teils steht fest, sobald es an der Reihe ist, da alle
+        // Baugruppen, die es enthalten, vorher abgearbeitet wurden. Gespeicherte
+        // Aufloesungen von Sub-Baugruppen enthalten schon Gesamtanzahlen und werden
+        // deshalb getrennt aufsummiert und nicht weitergegeben.
+        for (int i = 0; i < reachable.size(); i++) {
+            int current = reachable.get(i);
+            Explosion subExplosion = reused[current];
+            if (subExplosion != null) {
+                reused[current] = null;
+                reusedEntries += subExplosion.size();
+                for (int j = 0; j < subExplosion.size(); j++) {
+                    int subPart = subExplosion.getId(j);
+                    if (visited[subPart] != visitMark) {
+                        visited[subPart] = visitMark;
+                        amounts.clear(subPart);
+                        reusedAmounts.clear(subPart);
+                        others.add(subPart);
+                    }
+                    reusedAmounts.addProduct(subPart, subExplosion, j, amounts, current);
+                }
+            } else {
+                for (int j = 0; j < subParts.getDegree(current); j++) {
+                    amounts.addProduct(subParts.getTarget(current, j), subParts.getValue(current, j), amounts, current);
                 }
             }
-            // Ueberpruefung fortsetzen, so lange noch nicht alle Teile in der List
-            // Einzelteile sind.
-            for (String entry : list) {
-                if (!allParts.get(entry).isComponent()) {
-                    containsOnlyComponents = false;
-                    break;
+        }
+
+        int size = reachable.size() - 1 + others.size();
+        int[] ids = new int[size];
+        int index = 0;
+        for (int i = 0; i < reachable.size() + others.size(); i++) {
+            int current = i < reachable.size() ? reachable.get(i) : others.get(i - reachable.size());
+            if (current != id) {
+                ids[index++] = current;
+                amounts.addProduct(current, 1, reusedAmounts, current);
+            }
+        }
+        Explosion explosion = amounts.toExplosion(ids);
+        traversals.offer(traversal);
+        TraversalCost.count(0, reusedEntries, 0, 0);
+        cache.put(id, explosion, version.getVersion());
+        commit(event, version, id, explosion, reachable.size());
+        return explosion;
+    }
+
+    /**
+     * Beendet das Event einer Aufloesung und zeichnet es auf, falls es
+     * eingeschaltet ist.
+     * 
+     * @param event     Event der Aufloesung.
+     * @param version   aufgeloeste Version des Graphen.
+     * @param id        Nummer der aufgeloesten Baugruppe.
+     * @param explosion Ergebnis der Aufloesung.
+     * @param nodes     Anzahl der besuchten Teile, 0 falls die Aufloesung aus dem
+     *                  Cache stammt.
+     */
+    private static void commit(FlightEvents.ExplosionEvent event, PartGraph version, int id, Explosion explosion,
+            int nodes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.assembly = version.getName(id);
+            event.size = explosion.size();
+            event.cached = nodes == 0;
+            event.nodes = nodes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gibt alle Teile, die von einer Baugruppe aus erreichbar sind, inklusive der
+     * Baugruppe selbst, in topologischer Reihenfolge zurueck und setzt deren
+     * Anzahlen auf 0. Die Reihenfolge ist die umgekehrte Reihenfolge, in der die
+     * Tiefensuche die Teile verlaesst, jede Baugruppe steht also vor ihren
+     * Sub-Teilen. In Sub-Baugruppen, deren Aufloesung im Cache liegt, wird nicht
+     * abgestiegen, ihre Aufloesung wird stattdessen in reused vermerkt. Die
+     * Kosten der Tiefensuche werden an TraversalCost gemeldet.
+     * 
+     * @param version   Version des Graphen, die aufgeloest wird.
+     * @param id        Nummer der Baugruppe, bei der begonnen wird.
+     * @param traversal Hilfsarrays dieser Aufloesung.
+     * @return Liste aller erreichbaren Teile in topologischer Reihenfolge.
+     */
+    private IntList getReachable(PartGraph version, int id, Traversal traversal) {
+        Amounts amounts = traversal.amounts;
+        Amounts reusedAmounts = traversal.reusedAmounts;
+        Explosion[] reused = traversal.reused;
+        int[] visited = traversal.visited;
+        int visitMark = ++traversal.visitMark;
+        Adjacency subParts = version.getSubParts();
+        IntList finished = new IntList();
+        IntList stack = new IntList();
+        IntList nextIndex = new IntList();
+        stack.add(id);
+        nextIndex.add(0);
+        visited[id] = visitMark;
+        amounts.clear(id);
+        reusedAmounts.clear(id);
+        reused[id] = null;
+        int edges = 0;
+        int depth = 0;
+        int reusedCount = 0;
+
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            int current = stack.get(top);
+            int index = nextIndex.get(top);
+            int degree = reused[current] != null ? 0 : subParts.getDegree(current);
+            if (index == degree) {
+                stack.removeLast();
+                nextIndex.removeLast();
+                finished.add(current);
+                continue;
+            }
+
+            nextIndex.set(top, index + 1);
+            edges++;
+            int subPart = subParts.getTarget(current, index);
+            if (visited[subPart] != visitMark) {
+                visited[subPart] = visitMark;
+                amounts.clear(subPart);
+                reusedAmounts.clear(subPart);
+                reused[subPart] = version.isComponent(subPart) ? null : cache.get(subPart, version.getVersion());
+                if (reused[subPart] != null) {
+                    reusedCount++;
                 }
+                stack.add(subPart);
+                nextIndex.add(0);
+                depth = Math.max(depth, stack.size() - 1);
+            }
+        }
+        TraversalCost.count(finished.size(), edges, depth, reusedCount);
+
+        IntList reachable = new IntList();
+        for (int i = finished.size() - 1; i >= 0; i--) {
+            reachable.add(finished.get(i));
+        }
+        return reachable;
+    }
+
+    /**
+     * Nimmt Hilfsarrays aus dem Vorrat oder legt neue an, falls gerade alle
+     * verwendet werden. Die Arrays sind gross genug fuer alle Teile im Graphen und
+     * muessen nach der Aufloesung wieder in den Vorrat gelegt werden.
+     * 
+     * @param version Version des Graphen, fuer die die Arrays reichen muessen.
+     * @return Hilfsarrays fuer eine Aufloesung.
+     */
+    private Traversal borrow(PartGraph version) {
+        Traversal traversal = traversals.poll();
+        if (traversal == null) {
+            traversal = new Traversal();
+        }
+        traversal.ensureCapacity(version.getCapacity());
+        return traversal;
+    }
+
+    /**
+     * Hilfsarrays einer einzelnen Aufloesung, die nach dem Teil indiziert sind.
+     */
+    private static class Traversal {
+        private Amounts amounts = new Amounts(16);
+        private Amounts reusedAmounts = new Amounts(16);
+        private Explosion[] reused = new Explosion[16];
+        private int[] visited = new int[16];
+        private int[] depths = new int[16];
+        private int[] stock = new int[16];
+        private int visitMark = 0;
+
+        /**
+         * Vergroessert die Arrays, falls der Graph inzwischen mehr Nummern vergeben
+         * hat, als sie fassen koennen.
+         * 
+         * @param nodes Anzahl der vergebenen Nummern im Graphen.
+         */
+        private void ensureCapacity(int nodes) {
+            if (nodes > visited.length) {
+                int capacity = Math.max(nodes, visited.length * 2);
+                amounts.ensureCapacity(capacity);
+                reusedAmounts.ensureCapacity(capacity);
+                reused = Arrays.copyOf(reused, capacity);
+                visited = Arrays.copyOf(visited, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+                stock = Arrays.copyOf(stock, capacity);
             }
         }
-        return true;
     }
 }
@@ -0,0 +1,579 @@
+package edu.kit.informatik;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Beantwortet, ob ein Teil direkt oder indirekt in einer Baugruppe vorkommt,
+ * ohne den Graphen zu durchlaufen. Jedes Teil belegt zwei Stellen in einer
+ * Liste, zwischen denen die Stellen aller Teile liegen, die es in einem
+ * aufspannenden Wald enthaelt. Zu jedem Teil wird eine sortierte Liste von
+ * Intervallen dieser Stellen gespeichert, die alle Teile abdeckt, die es direkt
+ * oder indirekt enthaelt. Eine Anfrage ist damit eine binaere Suche in der
+ * Liste der Baugruppe.
+ *
+ * <p>Der Index wird bei jeder neuen Kante nachgefuehrt. Ist das Sub-Teil neu,
+ * wird es direkt vor dem Ende der Baugruppe eingefuegt und liegt damit in allen
+ * Intervallen, die die Baugruppe abdecken, ohne dass sich eine Liste aendert.
+ * Sonst werden die Intervalle des Sub-Teils in die Liste der Baugruppe
+ * uebernommen und an deren Baugruppen weitergegeben, solange eine Liste dabei
+ * waechst. Die Stellen sind Zahlen mit Luecken. Ist keine Luecke mehr frei, wird
+ * nur der umgebende Bereich gleichmaessig neu verteilt. Da die Intervalle auf
+ * Stellen und nicht auf Zahlen verweisen, bleiben sie dabei gueltig.
+ *
+ * <p>Entfernte Kanten werden nur gemeldet und bleiben in den Listen. Ein nein
+ * ist danach weiterhin sicher, ein ja wird mit einer Tiefensuche bestaetigt, die
+ * alle Teile ueberspringt, deren Liste das Teil nicht abdeckt. Haben diese
+ * Suchen zusammen so viele Teile besucht, wie der Graph Teile und Kanten hat,
+ * berechnet der schreibende Thread den Index neu.
+ *
+ * <p>Mit publish wird eine unveraenderliche Version des Index unter der
+ * Versionsnummer des Graphen veroeffentlicht. Die Listen werden dabei wie beim
+ * Graphen blockweise geteilt. Jede Anfrage verwendet eigene Hilfsarrays aus
+ * einem Vorrat und wartet daher nie auf andere Anfragen oder auf Aenderungen.
+ * Gehoert die gefragte Version nicht zum veroeffentlichten Index, wird ohne
+ * Index gesucht.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class ReachabilityIndex {
+    private static final long LIMIT = 1L << 62;
+
+    private final PartGraph graph;
+    private final AtomicReference<Labels> published = new AtomicReference<Labels>();
+    private final AtomicLong searched = new AtomicLong();
+    private final ConcurrentLinkedQueue<Scratch> scratches = new ConcurrentLinkedQueue<Scratch>();
+    private long[] positions;
+    private int[] next;
+    private int[] previous;
+    private int last;
+    private boolean shared;
+    private PersistentArray<int[]> lists;
+    private boolean stale;
+    private int[] marks;
+    private int mark = 0;
+    private int[] merged = new int[16];
+
+    /**
+     * Erstellt den Index fuer alle Teile und Kanten, die der Graph bereits
+     * enthaelt.
+     *
+     * @param graph Graph aller Teile im System.
+     */
+    public ReachabilityIndex(PartGraph graph) {
+        this.graph = graph;
+        rebuild();
+    }
+
+    /**
+     * Traegt neue Kanten von einer Baugruppe zu Sub-Teilen ein, die bereits im
+     * Graphen stehen. Kostet fuer jedes neue Sub-Teil konstante Zeit, sonst so
+     * viel wie die Listen aller Teile, die dadurch neue Teile enthalten. Darf nur
+     * vom schreibenden Thread aufgerufen werden.
+     *
+     * @param assembly Nummer der Baugruppe.
+     * @param subParts Nummern der Sub-Teile.
+     */
+    public void addEdges(int assembly, int[] subParts) {
+        ensureCapacity(graph.getCapacity());
+        if (lists.get(assembly) == null) {
+            insertAfter(last, 2 * assembly);
+            insertAfter(2 * assembly, 2 * assembly + 1);
+            lists.set(assembly, new int[] {2 * assembly, 2 * assembly + 1});
+        }
+        int[][] sources = new int[subParts.length][];
+        int count = 0;
+        for (int subPart : subParts) {
+            // Ein Teil ohne Stellen hatte noch keine Kanten und wird Kind der Baugruppe.
+            if (lists.get(subPart) == null) {
+                insertAfter(previous[2 * assembly + 1], 2 * subPart);
+                insertAfter(2 * subPart, 2 * subPart + 1);
+                lists.set(subPart, new int[] {2 * subPart, 2 * subPart + 1});
+            } else {
+                sources[count++] = lists.get(subPart);
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        // Paarweise vereinigen, damit jede Liste nur logarithmisch oft kopiert wird.
+        while (count > 1) {
+            for (int i = 0; i < count; i += 2) {
+                sources[i / 2] = i + 1 < count ? union(sources[i], sources[i + 1]) : sources[i];
+            }
+            count = (count + 1) / 2;
+        }
+
+        int[] added = sources[0];
+        Adjacency superParts = graph.getSuperParts();
+        IntList stack = new IntList();
+        mark++;
+        marks[assembly] = mark;
+        stack.add(assembly);
+        while (!stack.isEmpty()) {
+            int current = stack.removeLast();
+            int[] list = lists.get(current);
+            int[] merged = union(list, added);
+            if (merged == list) {
+                continue;
+            }
+            lists.set(current, merged);
+            for (int i = 0; i < superParts.getDegree(current); i++) {
+                int superPart = superParts.getTarget(current, i);
+                if (marks[superPart] != mark) {
+                    marks[superPart] = mark;
+                    stack.add(superPart);
+                }
+            }
+        }
+    }
+
+    /**
+     * Meldet, dass Kanten aus dem Graphen entfernt wurden. Antworten ja werden
+     * danach bis zur naechsten Neuberechnung bestaetigt. Kostet konstante Zeit und
+     * darf nur vom schreibenden Thread aufgerufen werden.
+     */
+    public void removeEdges() {
+        stale = true;
+    }
+
+    /**
+     * Veroeffentlicht den aktuellen Stand als unveraenderliche Version fuer
+     * lesende Anfragen. Haben die Bestaetigungen seit der letzten Neuberechnung zu
+     * viele Teile besucht, wird der Index vorher neu berechnet. Darf nur vom
+     * schreibenden Thread aufgerufen werden.
+     *
+     * @param version Versionsnummer der mit freeze erzeugten Version des Graphen,
+     *                die denselben Stand hat.
+     */
+    public void publish(long version) {
+        if (stale && searched.get() > graph.size() + graph.getSubParts().getEdgeCount()) {
+            rebuild();
+        }
+        published.set(new Labels(version, positions, lists.freeze(), stale));
+        shared = true;
+    }
+
+    /**
+     * Gibt true zurueck, falls ein Teil in einer Version des Graphen direkt oder
+     * indirekt in einer Baugruppe vorkommt. Fuer den Graphen selbst wird der
+     * aktuelle Stand des Index verwendet, fuer eine mit freeze erzeugte Version
+     * der unter ihrer Versionsnummer veroeffentlichte.
+     *
+     * @param version  Version des Graphen, in der gesucht wird.
+     * @param assembly Nummer der Baugruppe.
+     * @param part     Nummer des gesuchten Teils.
+     * @return true, falls das Teil in der Baugruppe vorkommt, sonst false.
+     */
+    public boolean contains(PartGraph version, int assembly, int part) {
+        if (assembly == part) {
+            return false;
+        }
+        Labels current = version == graph ? new Labels(-1, positions, lists, stale) : published.get();
+        if (current != null && version != graph && current.version != version.getVersion()) {
+            current = null;
+        }
+        if (current != null) {
+            boolean covered = current.covers(assembly, part);
+            if (!covered || !current.stale) {
+                return covered;
+            }
+        }
+
+        Scratch scratch = borrow(version);
+        boolean found = search(version, current, scratch, assembly, part);
+        scratches.offer(scratch);
+        // Nur den Graphen selbst darf der Aufrufer neu berechnen, fuer Versionen
+        // geschieht das beim naechsten publish.
+        if (current != null && version == graph
+                && searched.get() > graph.size() + graph.getSubParts().getEdgeCount()) {
+            rebuild();
+        }
+        return found;
+    }
+
+    /**
+     * Berechnet Stellen und Listen aller Teile aus dem Graphen neu, etwa nachdem
+     * der Graph auf eine fruehere Version zurueckgesetzt wurde. Die Stellen werden
+     * gleichmaessig verteilt. Kostet so viel wie die Anzahl der Teile und Kanten
+     * und die Laenge der Listen. Darf nur vom schreibenden Thread aufgerufen
+     * werden.
+     */
+    public void rebuild() {
+        int capacity = graph.getCapacity();
+        positions = new long[2 * capacity];
+        next = new int[2 * capacity];
+        previous = new int[2 * capacity];
+        marks = new int[capacity];
+        last = -1;
+        shared = false;
+        lists = new PersistentArray<int[]>();
+        stale = false;
+        searched.set(0);
+        long step = LIMIT / (2L * graph.size() + 1);
+        Adjacency subParts = graph.getSubParts();
+        Adjacency superParts = graph.getSuperParts();
+        IntList stack = new IntList();
+        IntList nextIndex = new IntList();
+        int visited = 0;
+        mark++;
+
+        // Zuerst von den obersten Baugruppen aus suchen, damit die Baeume moeglichst
+        // gross werden. In einem zyklenfreien Graphen erreicht das alle Teile.
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < capacity; root++) {
+                if (graph.getName(root) == null || marks[root] == mark
+                        || (pass == 0 && superParts.getDegree(root) > 0)) {
+                    continue;
+                }
+                marks[root] = mark;
+                append(2 * root, step);
+                stack.add(root);
+                nextIndex.add(0);
+                while (!stack.isEmpty()) {
+                    int current = stack.get(stack.size() - 1);
+                    int index = nextIndex.get(nextIndex.size() - 1);
+                    if (index < subParts.getDegree(current)) {
+                        nextIndex.set(nextIndex.size() - 1, index + 1);
+                        int subPart = subParts.getTarget(current, index);
+                        if (marks[subPart] != mark) {
+                            marks[subPart] = mark;
+                            append(2 * subPart, step);
+                            stack.add(subPart);
+                            nextIndex.add(0);
+                        }
+                    } else {
+                        stack.removeLast();
+                        nextIndex.removeLast();
+                        append(2 * current + 1, step);
+                        int[] list = {2 * current, 2 * current + 1};
+                        for (int i = 0; i < subParts.getDegree(current); i++) {
+                            int[] subList = lists.get(subParts.getTarget(current, i));
+                            if (subList != null) {
+                                list = union(list, subList);
+                            }
+                        }
+                        lists.set(current, list);
+                        visited++;
+                    }
+                }
+            }
+        }
+        TraversalCost.count(visited, subParts.getEdgeCount(), 0, 0);
+    }
+
+    /**
+     * Haengt beim Neuberechnen eine Stelle hinter alle anderen.
+     *
+     * @param element Stelle, die angehaengt wird.
+     * @param step    Abstand zwischen zwei Stellen.
+     */
+    private void append(int element, long step) {
+        positions[element] = last < 0 ? step : positions[last] + step;
+        previous[element] = last;
+        next[element] = -1;
+        if (last >= 0) {
+            next[last] = element;
+        }
+        last = element;
+    }
+
+    /**
+     * Fuegt eine Stelle hinter einer anderen ein. Ist zwischen den beiden
+     * Nachbarn keine Zahl mehr frei, wird der umgebende Bereich neu verteilt.
+     *
+     * @param element  Stelle, hinter der eingefuegt wird, oder -1, falls die Liste
+     *                 leer ist.
+     * @param inserted neue Stelle.
+     */
+    private void insertAfter(int element, int inserted) {
+        if (element < 0) {
+            positions[inserted] = LIMIT / 2;
+            previous[inserted] = -1;
+            next[inserted] = -1;
+            last = inserted;
+            return;
+        }
+        int following = next[element];
+        if ((following < 0 ? LIMIT : positions[following]) - positions[element] < 2) {
+            relabel(element);
+        }
+        long high = following < 0 ? LIMIT : positions[following];
+        positions[inserted] = positions[element] + (high - positions[element]) / 2;
+        previous[inserted] = element;
+        next[inserted] = following;
+        next[element] = inserted;
+        if (following < 0) {
+            last = inserted;
+        } else {
+            previous[following] = inserted;
+        }
+    }
+
+    /**
+     * Verteilt die Stellen um eine volle Stelle gleichmaessig neu. Der Bereich
+     * wird so lange verdoppelt, bis er duenn genug besetzt ist, sodass jedes
+     * Einfuegen im Mittel nur logarithmisch viele Stellen verschiebt. Ist der
+     * Stand veroeffentlicht, werden die Zahlen vorher kopiert.
+     *
+     * @param element Stelle, hinter der keine Zahl mehr frei ist.
+     */
+    private void relabel(int element) {
+        if (shared) {
+            positions = positions.clone();
+            shared = false;
+        }
+        int left = element;
+        int right = element;
+        long count = 1;
+        for (int bits = 1; bits <= 62; bits++) {
+            long low = positions[element] & -(1L << bits);
+            long high = low + (1L << bits);
+            while (previous[left] >= 0 && positions[previous[left]] >= low) {
+                left = previous[left];
+                count++;
+            }
+            while (next[right] >= 0 && positions[next[right]] < high) {
+                right = next[right];
+                count++;
+            }
+            if (count < 1L << (bits >> 1) || bits == 62) {
+                long step = (1L << bits) / count;
+                long position = low;
+                for (int current = left; current != next[right]; current = next[current]) {
+                    positions[current] = position;
+                    position += step;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Vereinigt zwei Listen von Intervallen in einem Durchlauf. Aneinandergrenzende
+     * Intervalle werden zusammengefasst, da zwischen ihnen nie eine Stelle
+     * eingefuegt wird.
+     *
+     * @param list  sortierte Liste von Intervallen.
+     * @param added sortierte Liste von Intervallen, die hinzukommen.
+     * @return list selbst, falls sie added schon abdeckt, sonst eine neue Liste.
+     */
+    private int[] union(int[] list, int[] added) {
+        if (merged.length < list.length + added.length) {
+            merged = new int[2 * (list.length + added.length)];
+        }
+        boolean changed = false;
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        long listStart = positions[list[0]];
+        long addedStart = positions[added[0]];
+        long endPosition = 0;
+        while (i < list.length || j < added.length) {
+            boolean fromAdded = i >= list.length || (j < added.length && addedStart < listStart);
+            int start;
+            int end;
+            long startPosition;
+            if (fromAdded) {
+                start = added[j];
+                end = added[j + 1];
+                startPosition = addedStart;
+                j += 2;
+                addedStart = j < added.length ? positions[added[j]] : 0;
+            } else {
+                start = list[i];
+                end = list[i + 1];
+                startPosition = listStart;
+                i += 2;
+                listStart = i < list.length ? positions[list[i]] : 0;
+            }
+            if (size > 0 && (startPosition <= endPosition || next[merged[size - 1]] == start)) {
+                long endOfStart = positions[end];
+                if (endOfStart > endPosition) {
+                    merged[size - 1] = end;
+                    endPosition = endOfStart;
+                    changed = true;
+                }
+            } else {
+                merged[size++] = start;
+                merged[size++] = end;
+                endPosition = positions[end];
+                changed |= fromAdded;
+            }
+        }
+        return changed ? Arrays.copyOf(merged, size) : list;
+    }
+
+    /**
+     * Sucht in einer Liste das letzte Intervall, das nicht hinter einer Zahl
+     * beginnt.
+     *
+     * @param positions Zahlen aller Stellen.
+     * @param list      sortierte Liste von Intervallen.
+     * @param position  gesuchte Zahl.
+     * @return Index des Anfangs dieses Intervalls in der Liste oder -2.
+     */
+    private static int find(long[] positions, int[] list, long position) {
+        int low = 0;
+        int high = list.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (positions[list[2 * middle]] <= position) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return 2 * high;
+    }
+
+    /**
+     * Sucht ein Teil unter einer Baugruppe. Mit Index werden alle Teile
+     * uebersprungen, deren Liste das Teil nicht abdeckt, und die besuchten Teile
+     * fuer die Entscheidung gezaehlt, wann der Index neu berechnet wird.
+     *
+     * @param version  Version des Graphen, in der gesucht wird.
+     * @param current  Index dieser Version oder null.
+     * @param scratch  Hilfsarrays der Anfrage.
+     * @param assembly Nummer der Baugruppe.
+     * @param part     Nummer des gesuchten Teils.
+     * @return true, falls das Teil in der Baugruppe vorkommt, sonst false.
+     */
+    private boolean search(PartGraph version, Labels current, Scratch scratch, int assembly, int part) {
+        Adjacency subParts = version.getSubParts();
+        int[] visited = scratch.visited;
+        int visitMark = ++scratch.visitMark;
+        IntList stack = scratch.stack;
+        stack.clear();
+        stack.add(assembly);
+        visited[assembly] = visitMark;
+        int nodes = 0;
+        int edges = 0;
+        boolean found = false;
+
+        while (!stack.isEmpty() && !found) {
+            int node = stack.removeLast();
+            nodes++;
+            for (int i = 0; i < subParts.getDegree(node) && !found; i++) {
+                int subPart = subParts.getTarget(node, i);
+                edges++;
+                if (subPart == part) {
+                    found = true;
+                } else if (visited[subPart] != visitMark && (current == null || current.covers(subPart, part))) {
+                    visited[subPart] = visitMark;
+                    stack.add(subPart);
+                }
+            }
+        }
+        TraversalCost.count(nodes, edges, 0, 0);
+        if (current != null) {
+            searched.addAndGet(nodes);
+        }
+        return found;
+    }
+
+    /**
+     * Vergroessert die Arrays des schreibenden Threads, falls der Graph
+     * inzwischen mehr Nummern vergeben hat.
+     *
+     * @param capacity Anzahl der vergebenen Nummern im Graphen.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > marks.length) {
+            int grown = Math.max(capacity, marks.length * 2);
+            positions = Arrays.copyOf(positions, 2 * grown);
+            next = Arrays.copyOf(next, 2 * grown);
+            previous = Arrays.copyOf(previous, 2 * grown);
+            marks = Arrays.copyOf(marks, grown);
+            shared = false;
+        }
+    }
+
+    /**
+     * Nimmt Hilfsarrays aus dem Vorrat oder legt neue an, falls gerade alle
+     * verwendet werden. Die Arrays muessen nach der Anfrage wieder in den Vorrat
+     * gelegt werden.
+     *
+     * @param version Version des Graphen, fuer die die Arrays reichen muessen.
+     * @return Hilfsarrays fuer eine Anfrage.
+     */
+    private Scratch borrow(PartGraph version) {
+        Scratch scratch = scratches.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        scratch.ensureCapacity(version.getCapacity());
+        return scratch;
+    }
+
+    /**
+     * Stand des Index unter einer Versionsnummer. Ein veroeffentlichter Stand darf
+     * von mehreren Threads gleichzeitig gelesen werden. Der schreibende Thread
+     * schreibt danach nur noch Zahlen von Stellen, die der Stand nicht kennt, und
+     * kopiert die Zahlen, bevor er bekannte veraendert.
+     */
+    private static final class Labels {
+        private final long version;
+        private final long[] positions;
+        private final PersistentArray<int[]> lists;
+        private final boolean stale;
+
+        /**
+         * Erstellt einen Stand aus den Arrays des Index.
+         *
+         * @param version   Versionsnummer oder -1 fuer den Graphen selbst.
+         * @param positions Zahlen aller Stellen.
+         * @param lists     Listen aller Teile.
+         * @param stale     true, falls seit der Berechnung Kanten entfernt wurden.
+         */
+        private Labels(long version, long[] positions, PersistentArray<int[]> lists, boolean stale) {
+            this.version = version;
+            this.positions = positions;
+            this.lists = lists;
+            this.stale = stale;
+        }
+
+        /**
+         * Gibt true zurueck, falls die Liste einer Baugruppe ein Teil abdeckt. Ohne
+         * entfernte Kanten kommt das Teil dann in der Baugruppe vor. Deckt sie es
+         * nicht ab, kommt es sicher nicht darin vor.
+         *
+         * @param assembly Nummer der Baugruppe.
+         * @param part     Nummer des Teils.
+         * @return true, falls die Liste der Baugruppe das Teil abdeckt.
+         */
+        private boolean covers(int assembly, int part) {
+            int[] list = lists.get(assembly);
+            if (list == null || lists.get(part) == null) {
+                return false;
+            }
+            long position = positions[2 * part];
+            int found = find(positions, list, position);
+            return found >= 0 && positions[list[found + 1]] >= position;
+        }
+    }
+
+    /**
+     * Hilfsarrays einer einzelnen Anfrage, die nach dem Teil indiziert sind.
+     */
+    private static class Scratch {
+        private int[] visited = new int[16];
+        private int visitMark = 0;
+        private IntList stack = new IntList();
+
+        /**
+         * Vergroessert das Array, falls der Graph inzwischen mehr Nummern vergeben
+         * hat, als es fassen kann.
+         *
+         * @param nodes Anzahl der vergebenen Nummern im Graphen.
+         */
+        private void ensureCapacity(int nodes) {
+            if (nodes > visited.length) {
+                visited = Arrays.copyOf(visited, Math.max(nodes, visited.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.kit.informatik;
+
+import java.util.Map;
+
+/**
+ * Ergebnis eines Bedarfsplanungslaufs: fuer jedes Teil, das fuer die gegebenen
+ * Bedarfe benoetigt wird, der Bruttobedarf und, nach Abzug des Lagerbestands,
+ * der Nettobedarf.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class Requirements {
+    private final Map<String, Number> gross;
+    private final Map<String, Number> net;
+
+    /**
+     * Erstellt das Ergebnis eines Bedarfsplanungslaufs.
+     *
+     * @param gross Bruttobedarf jedes benoetigten Teils.
+     * @param net   Nettobedarf jedes Teils, das nicht vollstaendig aus dem Lager
+     *              gedeckt werden kann.
+     */
+    public Requirements(Map<String, Number> gross, Map<String, Number> net) {
+        this.gross = gross;
+        this.net = net;
+    }
+
+    /**
+     * Gibt den Bruttobedarf jedes benoetigten Teils zurueck, also die Anzahl,
+     * die fuer die Bedarfe und die Nettobedarfe aller uebergeordneten Baugruppen
+     * benoetigt wird.
+     *
+     * @return Map von Name auf Bruttobedarf.
+     */
+    public Map<String, Number> getGross() {
+        return gross;
+    }
+
+    /**
+     * Gibt den Nettobedarf jedes Teils zurueck, dessen Bruttobedarf den
+     * Lagerbestand uebersteigt.
+     *
+     * @return Map von Name auf Nettobedarf.
+     */
+    public Map<String, Number> getNet() {
+        return net;
+    }
+}
@@ -0,0 +1,359 @@
+package edu.kit.informatik;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Speichert den gesamten Katalog kompakt in einer Binaerdatei und liest ihn
+ * wieder ein. Die Datei hat folgenden Aufbau:
+ *
+ * <pre>
+ * int      Kennung "MRPS" und Version
+ * int      Anzahl der Teile n und Anzahl der Kanten e
+ * n mal    Namen lexikografisch sortiert und front-codiert: Laenge des
+ *          gemeinsamen Praefixes mit dem vorherigen Namen, Laenge des Rests
+ *          (beides als Varint) und der Rest als ISO-8859-1
+ * int[n+1] Stelle, an der die Sub-Teile jedes Teils beginnen
+ * int[e]   Sub-Teile (Stelle in der Namenstabelle), je Teil aufsteigend
+ * int[e]   Anzahl jedes Sub-Teils
+ * int[n]   alle Teile in topologischer Ordnung
+ * </pre>
+ *
+ * <p>Teile werden in der Datei ueber ihre Stelle in der sortierten
+ * Namenstabelle angesprochen. Beim Laden erhaelt jedes Teil genau diese Stelle
+ * als Nummer, sodass die Arrays direkt als CSR-Basis des PartGraph verwendet
+ * werden koennen. Die Datei wird dazu per FileChannel in den Speicher
+ * abgebildet. Da nur zyklenfreie Kataloge gespeichert werden koennen, wird die
+ * Zyklenfreiheit beim Laden nicht erneut geprueft, die Ladezeit ist also
+ * linear in der Groesse der Datei.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public final class Snapshot {
+    /**
+     * Kennung am Anfang jeder Datei ("MRPS").
+     */
+    private static final int MAGIC = 0x4D525053;
+
+    /**
+     * Version des Dateiformats.
+     */
+    private static final int VERSION = 1;
+
+    private PartGraph graph;
+    private int[] order;
+
+    /**
+     * Erstellt einen eingelesenen Snapshot.
+     *
+     * @param graph Graph aller Teile.
+     * @param order Nummern aller Teile in topologischer Ordnung.
+     */
+    private Snapshot(PartGraph graph, int[] order) {
+        this.graph = graph;
+        this.order = order;
+    }
+
+    /**
+     * Gibt den Graphen aller eingelesenen Teile zurueck.
+     *
+     * @return Graph aller Teile.
+     */
+    public PartGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gibt die Nummern aller eingelesenen Teile in topologischer Ordnung zurueck,
+     * jede Baugruppe steht also vor allen ihren Sub-Teilen.
+     *
+     * @return Nummern aller Teile in topologischer Ordnung.
+     */
+    public int[] getOrder() {
+        return order;
+    }
+
+    /**
+     * Schreibt alle Teile eines Graphen in eine Datei. Die Datei wird zuerst unter
+     * einem temporaeren Namen geschrieben und dann umbenannt, eine bestehende
+     * Datei ist also nie nur halb ueberschrieben.
+     *
+     * @param path  Pfad der Datei.
+     * @param graph Graph aller Teile.
+     * @param order topologische Ordnung aller Teile im Graphen.
+     * @throws IOException falls die Datei nicht geschrieben werden kann.
+     */
+    public static void write(String path, PartGraph graph, TopologicalOrder order) throws IOException {
+        writeFile(path, encode(graph, order));
+    }
+
+    /**
+     * Schreibt einen mit encode erzeugten Snapshot in eine Datei und wartet, bis
+     * er auf dem Datentraeger liegt. Die Datei wird zuerst unter einem
+     * temporaeren Namen geschrieben und dann umbenannt, eine bestehende Datei ist
+     * also nie nur halb ueberschrieben. Da der Graph dabei nicht mehr gelesen
+     * wird, kann dies auch in einem eigenen Thread geschehen.
+     *
+     * @param path     Pfad der Datei.
+     * @param snapshot mit encode erzeugter Snapshot.
+     * @throws IOException falls die Datei nicht geschrieben werden kann.
+     */
+    public static void writeFile(String path, byte[] snapshot) throws IOException {
+        Path target = Paths.get(path);
+        Path temporary = Paths.get(path + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Schreibt alle Teile einer unveraenderlichen Version des Graphen wie
+     * encode(PartGraph, TopologicalOrder) in ein Byte-Array. Die topologische
+     * Ordnung wird dabei aus der Version selbst neu berechnet, sodass dies auch
+     * in einem eigenen Thread geschehen kann, waehrend der Graph weiter
+     * veraendert wird.
+     *
+     * @param version mit PartGraph.freeze erzeugte, zyklenfreie Version.
+     * @return der Snapshot als Byte-Array.
+     */
+    public static byte[] encode(PartGraph version) {
+        TopologicalOrder order = new TopologicalOrder(version);
+        order.rebuild();
+        return encode(version, order);
+    }
+
+    /**
+     * Schreibt alle Teile eines Graphen im oben beschriebenen Format in ein
+     * Byte-Array.
+     *
+     * @param graph Graph aller Teile.
+     * @param order topologische Ordnung aller Teile im Graphen.
+     * @return der Snapshot als Byte-Array.
+     */
+    public static byte[] encode(PartGraph graph, TopologicalOrder order) {
+        String[] names = new String[graph.size()];
+        IntList ids = new IntList();
+        for (int id = 0; id < graph.getCapacity(); id++) {
+            if (graph.getName(id) != null) {
+                names[ids.size()] = graph.getName(id);
+                ids.add(id);
+            }
+        }
+        Arrays.sort(names);
+        int[] indices = new int[graph.getCapacity()];
+        for (int i = 0; i < names.length; i++) {
+            indices[graph.getId(names[i])] = i;
+        }
+        order.sort(ids);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Adjacency subParts = graph.getSubParts();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names.length);
+            out.writeInt(subParts.getEdgeCount());
+            writeNames(out, names);
+
+            int offset = 0;
+            out.writeInt(offset);
+            for (String name : names) {
+                offset += subParts.getDegree(graph.getId(name));
+                out.writeInt(offset);
+            }
+            // Sub-Teile und Anzahlen werden gemeinsam nach der Stelle in der
+            // Namenstabelle sortiert, damit sie beim Laden sortiert vorliegen.
+            long[][] edges = new long[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                int id = graph.getId(names[i]);
+                edges[i] = new long[subParts.getDegree(id)];
+                for (int j = 0; j < edges[i].length; j++) {
+                    edges[i][j] = ((long) indices[subParts.getTarget(id, j)] << 32) | subParts.getValue(id, j);
+                }
+                Arrays.sort(edges[i]);
+            }
+            for (long[] partEdges : edges) {
+                for (long edge : partEdges) {
+                    out.writeInt((int) (edge >>> 32));
+                }
+            }
+            for (long[] partEdges : edges) {
+                for (long edge : partEdges) {
+                    out.writeInt((int) edge);
+                }
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                out.writeInt(indices[ids.get(i)]);
+            }
+        } catch (IOException e) {
+            // Kann bei einem ByteArrayOutputStream nicht auftreten.
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Liest eine mit write geschriebene Datei ein.
+     *
+     * @param path Pfad der Datei.
+     * @return der eingelesene Snapshot.
+     * @throws IOException              falls die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException falls die Datei kein gueltiger Snapshot
+     *                                  ist.
+     */
+    public static Snapshot read(String path) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw ErrorType.INVALID_SNAPSHOT.exception();
+            }
+            int partCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            if (partCount < 0 || edgeCount < 0 || partCount > buffer.remaining()) {
+                throw ErrorType.INVALID_SNAPSHOT.exception();
+            }
+            String[] names = readNames(buffer, partCount);
+            int[] offsets = readInts(buffer, partCount + 1);
+            int[] targets = readInts(buffer, edgeCount);
+            int[] values = readInts(buffer, edgeCount);
+            int[] order = readInts(buffer, partCount);
+
+            // Nur der Aufbau wird geprueft, die Zyklenfreiheit wird vorausgesetzt.
+            if (offsets[0] != 0 || offsets[partCount] != edgeCount) {
+                throw ErrorType.INVALID_SNAPSHOT.exception();
+            }
+            for (int i = 0; i < partCount; i++) {
+                if (offsets[i] > offsets[i + 1] || order[i] < 0 || order[i] >= partCount) {
+                    throw ErrorType.INVALID_SNAPSHOT.exception();
+                }
+            }
+            for (int target : targets) {
+                if (target < 0 || target >= partCount) {
+                    throw ErrorType.INVALID_SNAPSHOT.exception();
+                }
+            }
+            return new Snapshot(new PartGraph(names, new Adjacency(offsets, targets, values)), order);
+        } catch (BufferUnderflowException e) {
+            throw ErrorType.INVALID_SNAPSHOT.exception();
+        }
+    }
+
+    /**
+     * Schreibt sortierte Namen front-codiert.
+     *
+     * @param out   Ziel der Namen.
+     * @param names lexikografisch sortierte Namen.
+     * @throws IOException falls nicht geschrieben werden kann.
+     */
+    private static void writeNames(DataOutputStream out, String[] names) throws IOException {
+        String previous = "";
+        for (String name : names) {
+            int shared = 0;
+            int maxShared = Math.min(previous.length(), name.length());
+            while (shared < maxShared && previous.charAt(shared) == name.charAt(shared)) {
+                shared++;
+            }
+            writeVarInt(out, shared);
+            writeVarInt(out, name.length() - shared);
+            out.write(name.substring(shared).getBytes(StandardCharsets.ISO_8859_1));
+            previous = name;
+        }
+    }
+
+    /**
+     * Liest front-codierte Namen.
+     *
+     * @param buffer Quelle der Namen.
+     * @param count  Anzahl der Namen.
+     * @return die gelesenen Namen.
+     */
+    private static String[] readNames(ByteBuffer buffer, int count) {
+        String[] names = new String[count];
+        byte[] current = new byte[16];
+        for (int i = 0; i < count; i++) {
+            int shared = readVarInt(buffer);
+            int rest = readVarInt(buffer);
+            if (shared < 0 || shared > (i == 0 ? 0 : names[i - 1].length()) || rest < 0
+                    || rest > buffer.remaining()) {
+                throw ErrorType.INVALID_SNAPSHOT.exception();
+            }
+            if (shared + rest > current.length) {
+                current = Arrays.copyOf(current, Math.max(shared + rest, current.length * 2));
+            }
+            buffer.get(current, shared, rest);
+            names[i] = new String(current, 0, shared + rest, StandardCharsets.ISO_8859_1);
+        }
+        return names;
+    }
+
+    /**
+     * Liest ein Array von ints am Stueck.
+     *
+     * @param buffer Quelle der Werte.
+     * @param count  Anzahl der Werte.
+     * @return die gelesenen Werte.
+     */
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        if (count > buffer.remaining() / Integer.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Schreibt eine nicht negative Zahl mit 7 Bit je Byte, kleine Zahlen brauchen
+     * also nur ein Byte.
+     *
+     * @param out   Ziel der Zahl.
+     * @param value zu schreibende Zahl.
+     * @throws IOException falls nicht geschrieben werden kann.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            out.write((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+
+    /**
+     * Liest eine mit writeVarInt geschriebene Zahl.
+     *
+     * @param buffer Quelle der Zahl.
+     * @return die gelesene Zahl.
+     */
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw ErrorType.INVALID_SNAPSHOT.exception();
+    }
+}
@@ -1,20 +1,93 @@
 package edu.kit.informatik;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Startet das Materialverwaltungsprogramm und laesst es so lange laufen, bis
- * der quit Befehl erfolgreich ausgefuehrt wird.
+ * der quit Befehl erfolgreich ausgefuehrt wird. Im Batch-Modus werden die
+ * Befehle stattdessen aus einer Datei oder am Stueck von der Standardeingabe
+ * gelesen und ausgefuehrt, bis quit ausgefuehrt wird oder keine Befehle mehr
+ * vorhanden sind. Im Server-Modus fuehrt jeder verbundene Client seine eigene
+ * Sitzung auf den gemeinsamen Teilen aus.
  * 
  * @author Daniel Vollmer
  * @version 1.0
  */
 public class StartProgram {
+    private String journalPath;
+    private boolean cascade;
+    private boolean parallel;
+
+    /**
+     * Erstellt ein Programm ohne Journal.
+     */
+    public StartProgram() {
+        this(null);
+    }
+
+    /**
+     * Erstellt ein Programm, das alle Teile aus einem Journal wiederherstellt und
+     * jede Aenderung darin festhaelt.
+     * 
+     * @param journalPath Basispfad der Dateien des Journals oder null.
+     */
+    public StartProgram(String journalPath) {
+        this(journalPath, false);
+    }
+
+    /**
+     * Erstellt ein Programm, das alle Teile aus einem Journal wiederherstellt und
+     * jede Aenderung darin festhaelt, wahlweise im Kaskadenmodus.
+     * 
+     * @param journalPath Basispfad der Dateien des Journals oder null.
+     * @param cascade     true, falls beim Entfernen auch Baugruppen entfernt
+     *                    werden sollen, die in keiner Baugruppe mehr vorkommen.
+     */
+    public StartProgram(String journalPath, boolean cascade) {
+        this(journalPath, cascade, false);
+    }
+
+    /**
+     * Erstellt ein Programm, das alle Teile aus einem Journal wiederherstellt und
+     * jede Aenderung darin festhaelt, wahlweise im Kaskadenmodus und im
+     * parallelen Modus.
+     * 
+     * @param journalPath Basispfad der Dateien des Journals oder null.
+     * @param cascade     true, falls beim Entfernen auch Baugruppen entfernt
+     *                    werden sollen, die in keiner Baugruppe mehr vorkommen.
+     * @param parallel    true, falls Baugruppen mit vielen Sub-Teilen parallel
+     *                    aufgeloest werden sollen.
+     */
+    public StartProgram(String journalPath, boolean cascade, boolean parallel) {
+        this.journalPath = journalPath;
+        this.cascade = cascade;
+        this.parallel = parallel;
+    }
 
     /**
      * Startet das Materialverwaltungsprogramm und laesst es so lange laufen, bis
      * der quit Befehl erfolgreich ausgefuehrt wird.
      */
     public void start() {
-        PartList allParts = new PartList();
+        PartList allParts = createPartList();
+        if (allParts == null) {
+            return;
+        }
 
         while (Command.isStillRunning()) {
             ValidateInput input = new ValidateInput();
@@ -22,10 +95,260 @@ public class StartProgram {
                 // Format der Eingabe auf Korrektheit ueberpruefen.
                 input.validateCommand();
                 // Versuchen einen eingegebenen Befehl auszufuehren.
-                input.getCommand().execute(allParts, input.getParts(), input.getFirstPartName());
+                execute(input, allParts);
+            } catch (IllegalArgumentException e) {
+                printError(e, allParts);
+            }
+            Output.flush();
+        }
+        allParts.close();
+    }
+
+    /**
+     * Fuehrt alle Befehle einer Datei oder der Standardeingabe nacheinander aus.
+     * Die Ausgabe wird dabei nicht nach jedem Befehl, sondern blockweise
+     * ausgegeben.
+     * 
+     * @param path        Pfad der Datei mit den Befehlen oder null, falls die
+     *                    Befehle von der Standardeingabe gelesen werden sollen.
+     * @param stopOnError true, falls nach dem ersten fehlgeschlagenen Befehl
+     *                    abgebrochen werden soll, false, falls die uebrigen
+     *                    Befehle trotzdem ausgefuehrt werden sollen.
+     */
+    public void startBatch(String path, boolean stopOnError) {
+        String[] lines = null;
+        if (path != null) {
+            try {
+                lines = Terminal.readFile(path);
+            } catch (RuntimeException e) {
+                Output.printError("the given file can't be read!");
+                Output.flush();
+                return;
+            }
+        }
+
+        PartList allParts = createPartList();
+        if (allParts == null) {
+            return;
+        }
+        int lineNumber = 0;
+        while (Command.isStillRunning()) {
+            String line;
+            if (lines == null) {
+                line = Terminal.readLine();
+            } else {
+                line = lineNumber < lines.length ? lines[lineNumber] : null;
+            }
+            lineNumber++;
+            if (line == null) {
+                break;
+            }
+
+            ValidateInput input = new ValidateInput();
+            try {
+                input.validateCommand(line);
+                execute(input, allParts);
+            } catch (IllegalArgumentException e) {
+                printError(e, allParts);
+                if (stopOnError) {
+                    break;
+                }
+            }
+        }
+        Output.flush();
+        allParts.close();
+    }
+
+    /**
+     * Startet das Programm als Server, der Verbindungen ueber einen lokalen
+     * TCP-Port oder einen Unix-Socket annimmt. Jede Verbindung wird in einem
+     * eigenen Thread bedient und fuehrt die gleichen Befehle wie im interaktiven
+     * Modus auf den gemeinsamen Teilen aus. Veraendernde Befehle laufen einzeln
+     * und veroeffentlichen danach eine neue Version der Teile. Lesende Befehle
+     * laufen ohne Sperre auf der zuletzt veroeffentlichten Version und warten
+     * daher nie auf einen Schreiber. Beginnt ein Client eine Transaktion, behaelt
+     * er die Sperre fuer Schreiber bis zu commit oder rollback. quit beendet nur
+     * die Sitzung des jeweiligen Clients.
+     * 
+     * @param address Port auf localhost oder Pfad des Unix-Sockets.
+     */
+    public void startServer(String address) {
+        PartList allParts = createPartList();
+        if (allParts == null) {
+            return;
+        }
+
+        allParts.enableVersions();
+        ReentrantLock lock = new ReentrantLock();
+        try (ServerSocketChannel server = openServer(address)) {
+            while (true) {
+                SocketChannel client = server.accept();
+                new Thread(() -> serve(client, allParts, lock), "session").start();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Output.printError("the server can't be started!");
+            Output.flush();
+        }
+        allParts.close();
+    }
+
+    /**
+     * Oeffnet den Server-Socket. Besteht die Adresse nur aus Ziffern, ist sie ein
+     * Port auf localhost, sonst der Pfad eines Unix-Sockets.
+     * 
+     * @param address Port oder Pfad.
+     * @return geoeffneter Server-Socket.
+     * @throws IOException falls der Socket nicht geoeffnet werden kann.
+     */
+    private ServerSocketChannel openServer(String address) throws IOException {
+        if (!address.isEmpty() && address.chars().allMatch(Character::isDigit)) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            return server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        return server.bind(UnixDomainSocketAddress.of(address));
+    }
+
+    /**
+     * Fuehrt die Sitzung eines Clients aus, bis dieser quit sendet oder die
+     * Verbindung schliesst. Solange weitere Befehle des Clients bereits gelesen
+     * sind, wird die Ausgabe gesammelt und erst danach am Stueck gesendet. Eine
+     * Transaktion, die der Client beim Ende der Sitzung noch offen hat, wird
+     * zurueckgesetzt.
+     * 
+     * @param client   Verbindung zum Client.
+     * @param allParts gemeinsame Teile aller Sitzungen.
+     * @param lock     Sperre, mit der veraendernde Befehle einzeln ausgefuehrt
+     *                 werden.
+     */
+    private void serve(SocketChannel client, PartList allParts, ReentrantLock lock) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8))) {
+            Output.redirect(output -> {
+                try {
+                    writer.append(output).append(System.lineSeparator()).flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            String line;
+            while (Command.isStillRunning() && (line = reader.readLine()) != null) {
+                ValidateInput input = new ValidateInput();
+                try {
+                    input.validateCommand(line);
+                    if (input.getCommand().isReadOnly()) {
+                        execute(input, allParts);
+                    } else {
+                        if (!lock.isHeldByCurrentThread()) {
+                            lock.lock();
+                        }
+                        try {
+                            execute(input, allParts);
+                        } finally {
+                            allParts.publish();
+                            if (!allParts.isInTransaction()) {
+                                lock.unlock();
+                            }
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    printError(e, allParts);
+                }
+                if (!reader.ready()) {
+                    Output.flush();
+                }
+            }
+            Output.flush();
+        } catch (IOException | UncheckedIOException e) {
+            // Der Client hat die Verbindung abgebrochen, die Sitzung endet.
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                allParts.rollback();
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Fuehrt einen bereits geprueften Befehl aus und zeichnet die Dauer und die
+     * Kosten seiner Ausfuehrung in den Statistiken auf. Begann die Eingabe mit
+     * explain, werden die Kosten nach dem Ergebnis ausgegeben. Die Ausfuehrung
+     * wird als CommandEvent an den Flight Recorder gemeldet.
+     * 
+     * @param input    gepruefte Eingabe.
+     * @param allParts Alle Teile, die im System existieren.
+     * @throws IllegalArgumentException falls der Befehl nicht ausgefuehrt werden
+     *                                  konnte.
+     */
+    private static void execute(ValidateInput input, PartList allParts) throws IllegalArgumentException {
+        Command command = input.getCommand();
+        FlightEvents.CommandEvent event = new FlightEvents.CommandEvent();
+        TraversalCost cost = TraversalCost.start();
+        event.begin();
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            command.execute(allParts, input);
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            event.end();
+            cost.stop();
+            allParts.getStatistics().recordLatency(command, nanos);
+            allParts.getStatistics().recordCost(command, cost);
+            if (event.shouldCommit()) {
+                event.command = command.getString();
+                event.part = input.getFirstPartName();
+                event.error = error;
+                event.nodes = cost.getNodes();
+                event.edges = cost.getEdges();
+                event.commit();
+            }
+        }
+        if (input.isExplained()) {
+            Output.printCost(cost);
+        }
+    }
+
+    /**
+     * Gibt die Meldung eines fehlgeschlagenen Befehls aus und zaehlt sie in den
+     * Statistiken.
+     * 
+     * @param e        Exception des Befehls.
+     * @param allParts Alle Teile, die im System existieren.
+     */
+    private static void printError(IllegalArgumentException e, PartList allParts) {
+        allParts.getStatistics().recordError(e);
+        Output.printError(e.getMessage());
+    }
+
+    /**
+     * Erstellt die Liste aller Teile und stellt sie gegebenenfalls aus dem Journal
+     * wieder her. Eine Ausgabe wird erst weitergegeben, wenn alle Aenderungen, die
+     * sie bestaetigt, im Journal stehen.
+     * 
+     * @return Liste aller Teile oder null, falls das Journal nicht geoeffnet
+     *         werden kann.
+     */
+    private PartList createPartList() {
+        PartList allParts = new PartList();
+        allParts.setCascade(cascade);
+        allParts.setParallel(parallel);
+        if (journalPath != null) {
+            try {
+                allParts.openJournal(journalPath);
             } catch (IllegalArgumentException e) {
-                Terminal.printError(e.getMessage());
+                Output.printError(e.getMessage());
+                Output.flush();
+                return null;
             }
         }
+        Output.setBeforeFlush(allParts::sync);
+        return allParts;
     }
 }
@@ -0,0 +1,118 @@
+package edu.kit.informatik;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sammelt Laufzeitstatistiken: fuer jeden Befehl ein LatencyHistogram mit der
+ * Dauer seiner Ausfuehrung und die Summe seiner TraversalCost, dazu fuer jede
+ * Art von Fehlermeldung, wie oft sie ausgegeben wurde. Alle Methoden duerfen
+ * gleichzeitig von mehreren Threads aufgerufen werden. Das Aufzeichnen von
+ * Dauern, Kosten und Fehlern erzeugt keine Objekte.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class Statistics {
+    private static final Command[] COMMANDS = Command.values();
+    private static final ErrorType[] ERROR_TYPES = ErrorType.values();
+
+    private static final int NODES = 0;
+    private static final int EDGES = 1;
+    private static final int DEPTH = 2;
+    private static final int REUSED = 3;
+    private static final int BYTES = 4;
+    private static final int COST_FIELDS = 5;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[COMMANDS.length];
+    private final AtomicLongArray costs = new AtomicLongArray(COMMANDS.length * COST_FIELDS);
+    private final AtomicLongArray errors = new AtomicLongArray(ERROR_TYPES.length);
+
+    /**
+     * Erstellt leere Statistiken.
+     */
+    public Statistics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Zeichnet die Dauer einer Ausfuehrung eines Befehls auf, auch wenn dieser
+     * fehlgeschlagen ist.
+     *
+     * @param command ausgefuehrter Befehl.
+     * @param nanos   Dauer der Ausfuehrung in Nanosekunden.
+     */
+    public void recordLatency(Command command, long nanos) {
+        latencies[command.ordinal()].record(nanos);
+    }
+
+    /**
+     * Addiert die Kosten einer Ausfuehrung eines Befehls zu dessen Summe. Von der
+     * Tiefe wird nur die groesste behalten.
+     *
+     * @param command ausgefuehrter Befehl.
+     * @param cost    Kosten der Ausfuehrung.
+     */
+    public void recordCost(Command command, TraversalCost cost) {
+        int base = command.ordinal() * COST_FIELDS;
+        costs.addAndGet(base + NODES, cost.getNodes());
+        costs.addAndGet(base + EDGES, cost.getEdges());
+        costs.accumulateAndGet(base + DEPTH, cost.getDepth(), Math::max);
+        costs.addAndGet(base + REUSED, cost.getReused());
+        costs.addAndGet(base + BYTES, Math.max(cost.getBytes(), 0));
+    }
+
+    /**
+     * Zaehlt eine ausgegebene Fehlermeldung unter der festen Nummer ihrer
+     * ErrorType.
+     *
+     * @param e Exception, deren Meldung ausgegeben wurde.
+     */
+    public void recordError(IllegalArgumentException e) {
+        errors.incrementAndGet(ErrorType.of(e).ordinal());
+    }
+
+    /**
+     * Gibt das Histogramm mit den Dauern eines Befehls zurueck.
+     *
+     * @param command Befehl, dessen Dauern gesucht sind.
+     * @return Histogramm des Befehls.
+     */
+    public LatencyHistogram getLatency(Command command) {
+        return latencies[command.ordinal()];
+    }
+
+    /**
+     * Gibt die Summe der Kosten aller bisherigen Ausfuehrungen eines Befehls
+     * zurueck, mit der groessten erreichten Tiefe.
+     *
+     * @param command Befehl, dessen Kosten gesucht sind.
+     * @return Summe der Kosten des Befehls.
+     */
+    public TraversalCost getCost(Command command) {
+        int base = command.ordinal() * COST_FIELDS;
+        return new TraversalCost(costs.get(base + NODES), costs.get(base + EDGES), costs.get(base + DEPTH),
+                costs.get(base + REUSED), costs.get(base + BYTES));
+    }
+
+    /**
+     * Gibt fuer jede Art bisher ausgegebener Fehlermeldungen zurueck, wie oft sie
+     * ausgegeben wurde, sortiert nach der Meldung. Veraenderliche Teile der
+     * Meldungen sind durch * ersetzt.
+     *
+     * @return Map von Art der Fehlermeldung auf Anzahl.
+     */
+    public Map<String, Long> getErrors() {
+        Map<String, Long> toReturn = new TreeMap<String, Long>();
+        for (ErrorType type : ERROR_TYPES) {
+            long count = errors.get(type.ordinal());
+            if (count > 0) {
+                toReturn.put(type.getCategory(), count);
+            }
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,310 @@
+package edu.kit.informatik;
+
+import java.util.Arrays;
+
+/**
+ * Verwaltet eine topologische Ordnung aller Teile im System. Jede Baugruppe
+ * steht dabei vor allen Teilen, aus denen sie besteht. Die Ordnung wird bei
+ * jeder neuen Kante (Baugruppe besteht aus Sub-Teil) inkrementell nach dem
+ * Verfahren von Pearce und Kelly angepasst. Steht die Baugruppe schon vor dem
+ * Sub-Teil, ist keine Traversierung noetig. Sonst werden nur die Teile
+ * betrachtet, deren Position zwischen den beiden Teilen liegt. Dabei wird auch
+ * erkannt, ob die neue Kante einen Zyklus erzeugen wuerde. Die Kosten jeder
+ * Suche werden an TraversalCost gemeldet, jede Pruefung auf Zyklen zusaetzlich
+ * als CycleCheckEvent an den Flight Recorder.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class TopologicalOrder {
+    private PartGraph graph;
+    private int[] positions = new int[16];
+    private int[] visited = new int[16];
+    private int visitMark = 0;
+    private int lowest = 0;
+    private int highest = 0;
+    private int searched = 0;
+
+    /**
+     * Erstellt eine leere Ordnung. Die Sub-Teile und die uebergeordneten
+     * Baugruppen der einzelnen Teile werden direkt aus dem gegebenen Graphen
+     * gelesen.
+     *
+     * @param graph Graph aller Teile im System.
+     */
+    public TopologicalOrder(PartGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Fuegt ein neues Teil vor allen anderen Teilen in die Ordnung ein. Sinnvoll
+     * fuer neue Baugruppen, da diese noch in keiner anderen Baugruppe vorkommen.
+     *
+     * @param id Nummer des neuen Teils.
+     */
+    public void addFirst(int id) {
+        ensureCapacity();
+        positions[id] = --lowest;
+    }
+
+    /**
+     * Fuegt ein neues Teil hinter allen anderen Teilen in die Ordnung ein.
+     * Sinnvoll fuer neue Einzelteile, da diese aus keinen anderen Teilen
+     * bestehen.
+     *
+     * @param id Nummer des neuen Teils.
+     */
+    public void addLast(int id) {
+        ensureCapacity();
+        positions[id] = ++highest;
+    }
+
+    /**
+     * Berechnet die Ordnung aller Teile im Graphen mit dem Verfahren von Kahn neu.
+     * Wird benutzt, wenn viele Kanten ohne addEdge in den Graphen eingetragen
+     * wurden, etwa beim Wiederherstellen aus einem Journal oder am Ende einer
+     * Transaktion. Enthaelt der Graph einen Zyklus, bekommen die Teile darauf
+     * keine gueltige Position und es wird false zurueckgegeben.
+     * 
+     * @return true, falls der Graph zyklenfrei ist, sonst false.
+     */
+    public boolean rebuild() {
+        FlightEvents.CycleCheckEvent event = new FlightEvents.CycleCheckEvent();
+        event.begin();
+        ensureCapacity();
+        Adjacency subParts = graph.getSubParts();
+        Adjacency superParts = graph.getSuperParts();
+        int[] remaining = new int[graph.getCapacity()];
+        IntList ready = new IntList();
+        for (int id = 0; id < graph.getCapacity(); id++) {
+            if (graph.getName(id) != null) {
+                remaining[id] = superParts.getDegree(id);
+                if (remaining[id] == 0) {
+                    ready.add(id);
+                }
+            }
+        }
+
+        lowest = 0;
+        highest = 0;
+        int edges = 0;
+        while (!ready.isEmpty()) {
+            int current = ready.removeLast();
+            positions[current] = ++highest;
+            edges += subParts.getDegree(current);
+            for (int i = 0; i < subParts.getDegree(current); i++) {
+                int subPart = subParts.getTarget(current, i);
+                if (--remaining[subPart] == 0) {
+                    ready.add(subPart);
+                }
+            }
+        }
+        TraversalCost.count(highest, edges, 0, 0);
+        boolean acyclic = highest == graph.size();
+        event.end();
+        if (event.shouldCommit()) {
+            event.nodes = highest;
+            event.cycle = !acyclic;
+            event.commit();
+        }
+        return acyclic;
+    }
+
+    /**
+     * Gibt die Position eines Teils in der Ordnung zurueck. Eine Baugruppe hat
+     * immer eine kleinere Position als alle ihre direkten und indirekten
+     * Sub-Teile.
+     *
+     * @param id Nummer des Teils.
+     * @return Position des Teils.
+     */
+    public int getPosition(int id) {
+        return positions[id];
+    }
+
+    /**
+     * Sortiert eine Liste von Teilen aufsteigend nach ihrer Position in der
+     * Ordnung, sodass jede Baugruppe vor allen ihren Sub-Teilen steht.
+     *
+     * @param ids zu sortierende Nummern der Teile.
+     */
+    public void sort(IntList ids) {
+        long[] keys = new long[ids.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) positions[ids.get(i)] << 32) | ids.get(i);
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            ids.set(i, (int) keys[i]);
+        }
+    }
+
+    /**
+     * Passt die Ordnung an eine neue Kante von einer Baugruppe zu einem Sub-Teil
+     * an. Die Kante selbst muss danach noch in den Graphen eingetragen werden.
+     * Wuerde die Kante einen Zyklus erzeugen, wird nichts veraendert und false
+     * zurueckgegeben.
+     *
+     * @param assembly Nummer der Baugruppe.
+     * @param subPart  Nummer des Sub-Teils.
+     * @return true, wenn die Kante hinzugefuegt werden kann, false, wenn sie einen
+     *         Zyklus erzeugen wuerde.
+     */
+    public boolean addEdge(int assembly, int subPart) {
+        FlightEvents.CycleCheckEvent event = new FlightEvents.CycleCheckEvent();
+        event.begin();
+        searched = 0;
+        boolean added = assembly != subPart && reorderForEdge(assembly, subPart);
+        event.end();
+        if (event.shouldCommit()) {
+            event.assembly = graph.getName(assembly);
+            event.subPart = graph.getName(subPart);
+            event.nodes = searched;
+            event.cycle = !added;
+            event.commit();
+        }
+        return added;
+    }
+
+    /**
+     * Ordnet den Bereich zwischen einer Baugruppe und einem neuen Sub-Teil neu,
+     * falls das Sub-Teil bisher vor der Baugruppe steht.
+     *
+     * @param assembly Nummer der Baugruppe.
+     * @param subPart  Nummer des Sub-Teils, nicht gleich der Baugruppe.
+     * @return true, wenn die Kante hinzugefuegt werden kann, false, wenn sie einen
+     *         Zyklus erzeugen wuerde.
+     */
+    private boolean reorderForEdge(int assembly, int subPart) {
+        int upper = positions[assembly];
+        int lower = positions[subPart];
+
+        // Nur wenn das Sub-Teil bisher vor der Baugruppe steht, muss der Bereich
+        // zwischen den beiden Teilen neu geordnet werden.
+        if (lower < upper) {
+            IntList forward = searchForward(subPart, assembly, upper);
+            if (forward == null) {
+                return false;
+            }
+            IntList backward = searchBackward(assembly, lower);
+            reorder(backward, forward);
+        }
+        return true;
+    }
+
+    /**
+     * Sammelt alle Teile, die von start aus erreichbar sind und deren Position
+     * kleiner als upper ist. Gibt null zurueck, falls dabei target erreicht wird,
+     * die neue Kante also einen Zyklus erzeugen wuerde.
+     *
+     * @param start  Teil, bei dem die Suche beginnt.
+     * @param target Teil, das nicht erreicht werden darf.
+     * @param upper  Position von target.
+     * @return Liste der gefundenen Teile oder null, falls target erreichbar ist.
+     */
+    private IntList searchForward(int start, int target, int upper) {
+        Adjacency subParts = graph.getSubParts();
+        IntList found = new IntList();
+        IntList stack = new IntList();
+        visitMark++;
+        stack.add(start);
+        visited[start] = visitMark;
+        int edges = 0;
+
+        while (!stack.isEmpty()) {
+            int current = stack.removeLast();
+            found.add(current);
+            for (int i = 0; i < subParts.getDegree(current); i++) {
+                int subPart = subParts.getTarget(current, i);
+                edges++;
+                if (subPart == target) {
+                    searched += found.size();
+                    TraversalCost.count(found.size(), edges, 0, 0);
+                    return null;
+                }
+                if (positions[subPart] < upper && visited[subPart] != visitMark) {
+                    visited[subPart] = visitMark;
+                    stack.add(subPart);
+                }
+            }
+        }
+        searched += found.size();
+        TraversalCost.count(found.size(), edges, 0, 0);
+        return found;
+    }
+
+    /**
+     * Sammelt alle Teile, die start direkt oder indirekt enthalten und deren
+     * Position groesser als lower ist.
+     *
+     * @param start Teil, bei dem die Suche beginnt.
+     * @param lower Position des neuen Sub-Teils.
+     * @return Liste der gefundenen Teile.
+     */
+    private IntList searchBackward(int start, int lower) {
+        Adjacency superParts = graph.getSuperParts();
+        IntList found = new IntList();
+        IntList stack = new IntList();
+        visitMark++;
+        stack.add(start);
+        visited[start] = visitMark;
+        int edges = 0;
+
+        while (!stack.isEmpty()) {
+            int current = stack.removeLast();
+            found.add(current);
+            edges += superParts.getDegree(current);
+            for (int i = 0; i < superParts.getDegree(current); i++) {
+                int superPart = superParts.getTarget(current, i);
+                if (positions[superPart] > lower && visited[superPart] != visitMark) {
+                    visited[superPart] = visitMark;
+                    stack.add(superPart);
+                }
+            }
+        }
+        searched += found.size();
+        TraversalCost.count(found.size(), edges, 0, 0);
+        return found;
+    }
+
+    /**
+     * Verteilt die Positionen aller gefundenen Teile neu, sodass alle Teile aus
+     * backward vor allen Teilen aus forward stehen. Innerhalb der beiden Listen
+     * bleibt die bisherige Reihenfolge erhalten.
+     *
+     * @param backward Teile, die die neue Baugruppe enthalten.
+     * @param forward  Teile, die im neuen Sub-Teil enthalten sind.
+     */
+    private void reorder(IntList backward, IntList forward) {
+        sort(backward);
+        sort(forward);
+
+        int[] freePositions = new int[backward.size() + forward.size()];
+        for (int i = 0; i < backward.size(); i++) {
+            freePositions[i] = positions[backward.get(i)];
+        }
+        for (int i = 0; i < forward.size(); i++) {
+            freePositions[backward.size() + i] = positions[forward.get(i)];
+        }
+        Arrays.sort(freePositions);
+
+        for (int i = 0; i < backward.size(); i++) {
+            positions[backward.get(i)] = freePositions[i];
+        }
+        for (int i = 0; i < forward.size(); i++) {
+            positions[forward.get(i)] = freePositions[backward.size() + i];
+        }
+    }
+
+    /**
+     * Vergroessert die Arrays, falls der Graph inzwischen mehr Nummern vergeben
+     * hat, als sie fassen koennen.
+     */
+    private void ensureCapacity() {
+        if (graph.getCapacity() > positions.length) {
+            int capacity = Math.max(graph.getCapacity(), positions.length * 2);
+            positions = Arrays.copyOf(positions, capacity);
+            visited = Arrays.copyOf(visited, capacity);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package edu.kit.informatik;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Zaehlt, wie viel Arbeit ein Befehl beim Durchlaufen der Produktstruktur
+ * verrichtet: besuchte Teile, verfolgte Kanten, die groesste Tiefe der
+ * Tiefensuche, wie oft eine gespeicherte Aufloesung verwendet wurde, statt
+ * abzusteigen, und wie viele Bytes der Befehl angelegt hat.
+ *
+ * <p>Jeder Thread hat seine eigenen Zaehler. Mit start wird vor einem Befehl
+ * begonnen, mit stop aufgehoert. Dazwischen addieren die Traversierungen ihre
+ * Kosten mit count zu den Zaehlern des aktuellen Threads, jeweils einmal am
+ * Ende einer Traversierung. Ausserhalb eines Befehls wird nichts gezaehlt.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public class TraversalCost {
+    private static final ThreadLocal<TraversalCost> CURRENT = ThreadLocal.withInitial(TraversalCost::new);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private boolean active = false;
+    private long nodes = 0;
+    private long edges = 0;
+    private long depth = 0;
+    private long reused = 0;
+    private long bytes = -1;
+
+    /**
+     * Erstellt Zaehler, die alle auf 0 stehen und fuer die keine Bytes bekannt
+     * sind.
+     */
+    public TraversalCost() {
+    }
+
+    /**
+     * Erstellt Zaehler mit den gegebenen Werten.
+     *
+     * @param nodes  Anzahl der besuchten Teile.
+     * @param edges  Anzahl der verfolgten Kanten.
+     * @param depth  groesste Tiefe.
+     * @param reused Anzahl der verwendeten gespeicherten Aufloesungen.
+     * @param bytes  Anzahl der angelegten Bytes oder -1, falls unbekannt.
+     */
+    public TraversalCost(long nodes, long edges, long depth, long reused, long bytes) {
+        this.nodes = nodes;
+        this.edges = edges;
+        this.depth = depth;
+        this.reused = reused;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Setzt die Zaehler des aktuellen Threads zurueck und beginnt zu zaehlen.
+     *
+     * @return Zaehler des aktuellen Threads.
+     */
+    public static TraversalCost start() {
+        TraversalCost cost = CURRENT.get();
+        cost.nodes = 0;
+        cost.edges = 0;
+        cost.depth = 0;
+        cost.reused = 0;
+        cost.bytes = getAllocatedBytes();
+        cost.active = true;
+        return cost;
+    }
+
+    /**
+     * Hoert auf zu zaehlen und berechnet, wie viele Bytes seit start angelegt
+     * wurden.
+     */
+    public void stop() {
+        active = false;
+        if (bytes >= 0) {
+            long allocated = getAllocatedBytes();
+            bytes = allocated >= 0 ? allocated - bytes : -1;
+        }
+    }
+
+    /**
+     * Addiert die Kosten einer Traversierung zu den Zaehlern des aktuellen
+     * Threads, falls dort gerade gezaehlt wird.
+     *
+     * @param nodes  Anzahl der besuchten Teile.
+     * @param edges  Anzahl der verfolgten Kanten.
+     * @param depth  groesste erreichte Tiefe.
+     * @param reused Anzahl der verwendeten gespeicherten Aufloesungen.
+     */
+    public static void count(int nodes, int edges, int depth, int reused) {
+        TraversalCost cost = CURRENT.get();
+        if (cost.active) {
+            cost.nodes += nodes;
+            cost.edges += edges;
+            cost.depth = Math.max(cost.depth, depth);
+            cost.reused += reused;
+        }
+    }
+
+    /**
+     * Unterbricht das Zaehlen im aktuellen Thread. Teilaufgaben, die mal im
+     * Thread des Befehls und mal in einem anderen Thread laufen, wuerden sonst
+     * mal gezaehlt und mal nicht.
+     *
+     * @return true, falls vorher gezaehlt wurde. Wird an resume uebergeben.
+     */
+    public static boolean pause() {
+        TraversalCost cost = CURRENT.get();
+        boolean active = cost.active;
+        cost.active = false;
+        return active;
+    }
+
+    /**
+     * Setzt das Zaehlen im aktuellen Thread nach pause fort.
+     *
+     * @param active Rueckgabewert des zugehoerigen Aufrufs von pause.
+     */
+    public static void resume(boolean active) {
+        CURRENT.get().active = active;
+    }
+
+    /**
+     * Gibt die Anzahl der besuchten Teile zurueck.
+     *
+     * @return Anzahl der besuchten Teile.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gibt die Anzahl der verfolgten Kanten zurueck. Eintraege einer verwendeten
+     * gespeicherten Aufloesung zaehlen dabei je als eine Kante.
+     *
+     * @return Anzahl der verfolgten Kanten.
+     */
+    public long getEdges() {
+        return edges;
+    }
+
+    /**
+     * Gibt die groesste Tiefe zurueck, die eine Tiefensuche unter einer
+     * aufgeloesten Baugruppe erreicht hat.
+     *
+     * @return groesste Tiefe.
+     */
+    public long getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gibt zurueck, wie oft eine gespeicherte Aufloesung verwendet wurde, statt
+     * sie neu zu berechnen.
+     *
+     * @return Anzahl der verwendeten gespeicherten Aufloesungen.
+     */
+    public long getReused() {
+        return reused;
+    }
+
+    /**
+     * Gibt die Anzahl der Bytes zurueck, die der Befehl angelegt hat.
+     *
+     * @return Anzahl der Bytes oder -1, falls die JVM sie nicht misst.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gibt die Anzahl der Bytes zurueck, die der aktuelle Thread bisher angelegt
+     * hat.
+     *
+     * @return Anzahl der Bytes oder -1, falls die JVM sie nicht misst.
+     */
+    private static long getAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
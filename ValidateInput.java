@@ -9,14 +9,32 @@ import java.util.TreeMap;
  * und korrekt ist und die dazugehoerenden Parameter ebenfalls das zum Befehl
  * passende Format haben und korrekt sind.
  * 
+ * <p>Die Parameter werden dabei in einem einzigen Durchlauf direkt in der
+ * eingelesenen Zeile geprueft. Es werden nur Stellen in der Zeile verwendet und
+ * nur fuer die Namen der Teile neue Strings erzeugt. Die Fehler und ihre
+ * Reihenfolge entsprechen dabei genau dem frueheren Aufteilen der Zeile mit
+ * String.split.
+ * 
+ * <p>Jede Pruefung wird als ValidationEvent an den Flight Recorder gemeldet.
+ * 
+ * <p>Beginnt die Zeile mit "explain ", wird dieses Praefix entfernt und der
+ * Rest wie ein gewoehnlicher Befehl geprueft. isExplained gibt danach true
+ * zurueck.
+ * 
  * @author Daniel Vollmer
  * @version 2.0
  *
  */
 public class ValidateInput {
+    private static final String EXPLAIN = "explain ";
+
     private Command command;
-    private PartName firstPart;
+    private boolean explained = false;
+    private String firstPart;
+    private String secondPart;
     private Map<String, Integer> parts = new TreeMap<String, Integer>();
+    private Map<String, Integer> stock = new TreeMap<String, Integer>();
+    private String line;
 
     /**
      * Prueft ob eine Eingabe (Befehl und Parameter) korrekt ist. Wirft eine
@@ -29,41 +47,112 @@ public class ValidateInput {
      *                                  inkorrekt ist.
      */
     public void validateCommand() throws IllegalArgumentException {
-        Input input = new Input();
-        String rest = input.getRest();
+        validateCommand(Terminal.readLine());
+    }
 
-        command = Command.stringToEnum(input.getCommand());
+    /**
+     * Prueft wie validateCommand() eine Eingabe, liest diese aber nicht vom
+     * Terminal, sondern verwendet die gegebene Zeile. Wird im Batch-Modus
+     * verwendet.
+     * 
+     * @param line Zeile, die geprueft werden soll.
+     * @throws IllegalArgumentException falls Eingabe falsches Format hat oder
+     *                                  inkorrekt ist.
+     */
+    public void validateCommand(String line) throws IllegalArgumentException {
+        FlightEvents.ValidationEvent event = new FlightEvents.ValidationEvent();
+        event.begin();
+        String error = null;
+        try {
+            if (line.startsWith(EXPLAIN)) {
+                explained = true;
+                validateCommand(new Input(line.substring(EXPLAIN.length())));
+            } else {
+                validateCommand(new Input(line));
+            }
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = command == null ? null : command.getString();
+                event.length = line.length();
+                event.parts = parts.size() + (firstPart == null ? 0 : 1);
+                event.error = error;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Prueft eine bereits eingelesene und aufgeteilte Eingabe.
+     * 
+     * @param input Eingabe, die geprueft werden soll.
+     * @throws IllegalArgumentException falls Eingabe falsches Format hat oder
+     *                                  inkorrekt ist.
+     */
+    private void validateCommand(Input input) throws IllegalArgumentException {
+        line = input.getLine();
+        int restStart = input.getRestStart();
+        int restEnd = line.length();
+
+        command = input.getCommand();
 
-        // Allgemeine Fehler die auftreten koennen.
+        // Allgemeine Fehler die auftreten koennen. Danach enthaelt die Zeile
+        // hoechstens ein Leerzeichen, der Rest ist also zusammenhaengend.
         moreThanOneBlankException(input);
-        noParameterException(rest);
-        lastCharacterException(rest);
+        noParameterException(restStart, restEnd);
+        lastCharacterException(restStart, restEnd);
 
         // Befehls-Charakteristische Fehler pruefen.
         switch (command) {
         case QUIT:
+        case BEGIN:
+        case COMMIT:
+        case ROLLBACK:
+        case STATS:
+        case GET_ALL_COMPONENTS:
             checkNoParameter(input);
             break;
         case ADD_ASSEMBLY:
-            checkNewAssembly(rest);
+            checkNewAssembly(restStart, restEnd);
             break;
         case REMOVE_ASSEMBLY:
-            checkOneName(rest);
+            checkOneName(restStart, restEnd);
             break;
         case PRINT_ASSEMBLY:
-            checkOneName(rest);
+            checkOneName(restStart, restEnd);
             break;
         case GET_ASSEMBLIES:
-            checkOneName(rest);
+            checkOneName(restStart, restEnd);
             break;
         case GET_COMPONENTS:
-            checkOneName(rest);
+            checkOneName(restStart, restEnd);
+            break;
+        case WHERE_USED:
+            checkOneName(restStart, restEnd);
+            break;
+        case GET_USED_IN:
+            checkOneName(restStart, restEnd);
+            break;
+        case CONTAINS:
+            checkContains(restStart, restEnd);
+            break;
+        case MRP:
+            checkRequirements(restStart, restEnd);
+            break;
+        case SAVE:
+            checkPath(restStart, restEnd);
+            break;
+        case LOAD:
+            checkPath(restStart, restEnd);
             break;
         case ADD_PART:
-            checkAddPart(rest);
+            checkAddPart(restStart, restEnd);
             break;
         case REMOVE_PART:
-            checkRemovePart(rest);
+            checkRemovePart(restStart, restEnd);
             break;
         default:
             command = Command.ILLEGAL_COMMAND;
@@ -79,6 +168,16 @@ public class ValidateInput {
         return command;
     }
 
+    /**
+     * Gibt true zurueck, falls die Eingabe mit "explain " begann und nach dem
+     * Befehl dessen Kosten ausgegeben werden sollen, sonst false.
+     * 
+     * @return true, falls die Kosten ausgegeben werden sollen, sonst false.
+     */
+    public boolean isExplained() {
+        return explained;
+    }
+
     /**
      * Gibt eine Map der Teile und die dazugehoerige Anzahl zurueck (ausser das
      * erste Teil das bei den Paraemeter der Eingabe vorkommt.
@@ -89,55 +188,74 @@ public class ValidateInput {
         return parts;
     }
 
+    /**
+     * Gibt eine Map der Teile und deren Lagerbestand zurueck, die beim Befehl mrp
+     * nach dem "-" angegeben wurden.
+     * 
+     * @return Map der Teile und dazugehoeriger Lagerbestand.
+     */
+    public Map<String, Integer> getStock() {
+        return stock;
+    }
+
     /**
      * Gibt den Namen des Ersten Teils der Eingabe zurueck.
      * 
      * @return Name des ersten Teils der Eingabe.
      */
     public String getFirstPartName() {
-        if (firstPart != null) {
-            return firstPart.toString();
-        }
-        return null;
+        return firstPart;
+    }
+
+    /**
+     * Gibt den Namen des zweiten Teils der Eingabe zurueck, beim Befehl contains
+     * also das gesuchte Teil.
+     * 
+     * @return Name des zweiten Teils der Eingabe oder null, falls es keins gibt.
+     */
+    public String getSecondPartName() {
+        return secondPart;
     }
 
     /**
      * Ueberprueft die Eingabe fuer den Befehl addPart. Wirft eine Exception, wenn
      * die Parameter der Eingabe nicht korrekt sind. Wenn sie korrekt sind, wird die
-     * Anzahl und das Teil welches verndert werden soll zu parts hinzugefuegt.
+     * Anzahl und das Teil welches veraendert werden soll zu parts hinzugefuegt.
      * firstPart wird auf das erste Teil, welches in der Eingabe vorkommt gesetzt.
      * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
      * @throws IllegalArgumentException falls die Parameter der Eingabe nicht zum
      *                                  addPart Befehl passen.
      */
-    private void checkAddPart(String rest) throws IllegalArgumentException {
-        String[] splittedRest = rest.split("\\+");
-
-        if (splittedRest.length != 2) {
-            throw new IllegalArgumentException("the input contains either no or more than one plus signs!");
+    private void checkAddPart(int start, int end) throws IllegalArgumentException {
+        int plus = findOnlySeparator('+', start, end);
+        if (plus < 0) {
+            throw ErrorType.PLUS_SIGNS.exception();
         }
-        firstPart = new PartName(splittedRest[0]);
-        addToParts(splittedRest[1]);
+        firstPart = PartName.parse(line, start, plus);
+        addToParts(plus + 1, end, parts);
     }
 
     /**
      * Ueberprueft die Eingabe fuer den Befehl removePart. Wirft eine Exception,
      * wenn die Parameter der Eingabe nicht korrekt sind. Wenn sie korrekt sind,
-     * wird die Anzahl und das Teil, welches verndert werden soll, zu parts
+     * wird die Anzahl und das Teil, welches veraendert werden soll, zu parts
      * hinzugefuegt. firstPart wird auf das erste Teil, welches in der Eingabe
      * vorkommt gesetzt.
      * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
      * @throws IllegalArgumentException falls die Parameter der Eingabe nicht zum
      *                                  removePart Befehl passen.
      */
-    private void checkRemovePart(String rest) throws IllegalArgumentException {
-        String[] splittedRest = rest.split("-");
-
-        if (splittedRest.length != 2) {
-            throw new IllegalArgumentException("the input contains either no or more than one minus signs!");
+    private void checkRemovePart(int start, int end) throws IllegalArgumentException {
+        int minus = findOnlySeparator('-', start, end);
+        if (minus < 0) {
+            throw ErrorType.MINUS_SIGNS.exception();
         }
-        firstPart = new PartName(splittedRest[0]);
-        addToParts(splittedRest[1]);
+        firstPart = PartName.parse(line, start, minus);
+        addToParts(minus + 1, end, parts);
     }
 
     /**
@@ -147,73 +265,212 @@ public class ValidateInput {
      * sollen, zu parts hinzugefuegt. firstPart wird auf das erste Teil, welches in
      * der Eingabe vorkommt gesetzt.
      * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
      * @throws IllegalArgumentException falls die Parameter der Eingabe nicht zum
      *                                  addAssembly Befehl passen.
      */
-    private void checkNewAssembly(String rest) throws IllegalArgumentException {
-        String[] splittedRest = rest.split("=");
+    private void checkNewAssembly(int start, int end) throws IllegalArgumentException {
+        int equals = findOnlySeparator('=', start, end);
+        if (equals < 0) {
+            throw ErrorType.EQUAL_SIGNS.exception();
+        }
+        firstPart = PartName.parse(line, start, equals);
+
+        addListToParts(equals + 1, end, parts);
+    }
 
-        if (splittedRest.length != 2) {
-            throw new IllegalArgumentException("the input contains either no or more than one equal signs!");
+    /**
+     * Ueberprueft die Eingabe fuer den Befehl contains. Die Parameter haben die
+     * Form "Baugruppe:Teil". firstPart wird auf die Baugruppe, secondPart auf das
+     * gesuchte Teil gesetzt.
+     * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
+     * @throws IllegalArgumentException falls die Parameter der Eingabe nicht zum
+     *                                  contains Befehl passen.
+     */
+    private void checkContains(int start, int end) throws IllegalArgumentException {
+        int colon = findOnlySeparator(':', start, end);
+        if (colon < 0) {
+            throw ErrorType.COLONS.exception();
         }
+        firstPart = PartName.parse(line, start, colon);
+        secondPart = PartName.parse(line, colon + 1, end);
+    }
 
-        firstPart = new PartName(splittedRest[0]);
-        addToParts(splittedRest[1].split(";"));
+    /**
+     * Ueberprueft die Eingabe fuer den Befehl mrp. Die Bedarfe werden in der Form
+     * "Anzahl:Name;Anzahl:Name" zu parts hinzugefuegt. Folgt nach einem "-" eine
+     * weitere Liste dieser Form, wird sie als Lagerbestand zu stock hinzugefuegt.
+     * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
+     * @throws IllegalArgumentException falls die Parameter der Eingabe nicht zum
+     *                                  mrp Befehl passen.
+     */
+    private void checkRequirements(int start, int end) throws IllegalArgumentException {
+        int minus = findOnlySeparator('-', start, end);
+        if (minus < 0) {
+            int first = line.indexOf('-', start);
+            if (first >= 0 && first < end) {
+                throw ErrorType.MINUS_SIGN.exception();
+            }
+            addListToParts(start, end, parts);
+        } else {
+            addListToParts(start, minus, parts);
+            addListToParts(minus + 1, end, stock);
+        }
     }
 
     /**
-     * Fuegt einen String einem String Array hinzu, um das Teil und die Anzahl parts
-     * hinzuzufuegen.
+     * Fuegt alle durch ";" getrennten Abschnitte eines Bereichs der Zeile mit
+     * addToParts einer Map hinzu. Jeder Abschnitt ist ein Teil, auch ein leerer.
      * 
-     * @param part Teil welches hinzugefuegt werden soll.
-     * @throws IllegalArgumentException falls ein Teilename doppelt vorkommt, eine
-     *                                  Anzahl keine Zahl ist oder falls eine Anzahl
-     *                                  aber kein Name gegeben ist.
+     * @param start  Stelle, an der der Bereich beginnt.
+     * @param end    Stelle nach dem letzten Zeichen des Bereichs.
+     * @param target Map, der die Teile hinzugefuegt werden.
+     * @throws IllegalArgumentException falls ein Abschnitt nicht die Form
+     *                                  "Anzahl:Name" hat.
      */
-    private void addToParts(String part) throws IllegalArgumentException {
-        String[] stringPart = new String[1];
-        stringPart[0] = part;
-        addToParts(stringPart);
+    private void addListToParts(int start, int end, Map<String, Integer> target) throws IllegalArgumentException {
+        int partStart = start;
+        for (int i = partStart; i <= end; i++) {
+            if (i == end || line.charAt(i) == ';') {
+                addToParts(partStart, i, target);
+                partStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Gibt die Stelle des einzigen Vorkommens eines Trennzeichens in einem Bereich
+     * der Zeile zurueck, oder -1, falls das Trennzeichen nicht oder mehrfach
+     * vorkommt.
+     * 
+     * @param separator gesuchtes Trennzeichen.
+     * @param start     Stelle, an der der Bereich beginnt.
+     * @param end       Stelle nach dem letzten Zeichen des Bereichs.
+     * @return Stelle des Trennzeichens oder -1.
+     */
+    private int findOnlySeparator(char separator, int start, int end) {
+        int found = -1;
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == separator) {
+                if (found >= 0) {
+                    return -1;
+                }
+                found = i;
+            }
+        }
+        return found;
     }
 
     /**
-     * Extrahiert aus einem String Array die Teile und deren Anzahl und fuegt sie
-     * parts hinzu.
+     * Extrahiert aus einem Bereich der Zeile der Form "Anzahl:Name" ein Teil und
+     * dessen Anzahl und fuegt sie einer Map hinzu. Weitere Abschnitte nach einem
+     * zweiten ":" werden ignoriert.
      * 
-     * @param splittedParts Array, aus welchem die Teile und Anzahl extrahiert
-     *                      werden soll.
+     * @param start  Stelle, an der der Bereich beginnt.
+     * @param end    Stelle nach dem letzten Zeichen des Bereichs.
+     * @param target Map, der das Teil hinzugefuegt wird, normalerweise parts.
      * @throws IllegalArgumentException falls ein Teilename doppelt vorkommt, eine
      *                                  Anzahl keine Zahl ist oder falls eine Anzahl
      *                                  aber kein Name gegeben ist.
      */
-    private void addToParts(String[] splittedParts) throws IllegalArgumentException {
-        for (int i = 0; i < splittedParts.length; i++) {
-            try {
-                PartName partName = new PartName(splittedParts[i].split(":")[1]);
-                int amount = Integer.valueOf(splittedParts[i].split(":")[0]);
-                if (parts.containsKey(partName.toString())) {
-                    throw new IllegalArgumentException("at least one name of the parts appear twice!");
-                }
-                parts.put(partName.toString(), amount);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("the amount of at least one part is not a number!");
-            } catch (ArrayIndexOutOfBoundsException e) {
-                throw new IllegalArgumentException("the format of at least one part and it's amount is incorrect.");
+    private void addToParts(int start, int end, Map<String, Integer> target) throws IllegalArgumentException {
+        int colon = line.indexOf(':', start);
+        if (colon < 0 || colon >= end) {
+            colon = end;
+        }
+        // Nach dem ersten ":" muss noch ein anderes Zeichen folgen, sonst fehlt der
+        // Name (auch ein leerer Name vor weiteren Abschnitten ist erlaubt).
+        int nameEnd = colon + 1;
+        boolean hasName = false;
+        for (int i = colon + 1; i < end; i++) {
+            if (line.charAt(i) != ':') {
+                hasName = true;
+                break;
             }
         }
+        if (!hasName) {
+            throw ErrorType.INVALID_PART_FORMAT.exception();
+        }
+        while (nameEnd < end && line.charAt(nameEnd) != ':') {
+            nameEnd++;
+        }
+
+        String name = PartName.parse(line, colon + 1, nameEnd);
+        int amount = parseAmount(start, colon);
+        if (target.containsKey(name)) {
+            throw ErrorType.DUPLICATE_NAME.exception();
+        }
+        target.put(name, amount);
+    }
+
+    /**
+     * Liest eine Anzahl aus einem Bereich der Zeile. Akzeptiert werden genau die
+     * Zahlen, die auch Integer.parseInt akzeptiert. Kurze Zahlen aus den Ziffern
+     * 0-9 werden direkt gelesen, alle anderen ueber Integer.parseInt.
+     * 
+     * @param start Stelle, an der die Anzahl beginnt.
+     * @param end   Stelle nach dem letzten Zeichen der Anzahl.
+     * @return die gelesene Anzahl.
+     * @throws IllegalArgumentException falls der Bereich keine Zahl ist.
+     */
+    private int parseAmount(int start, int end) throws IllegalArgumentException {
+        int digitsStart = start;
+        if (digitsStart < end && (line.charAt(digitsStart) == '+' || line.charAt(digitsStart) == '-')) {
+            digitsStart++;
+        }
+        // Bis zu neun Ziffern koennen nicht ueberlaufen.
+        if (digitsStart < end && end - digitsStart <= 9) {
+            int amount = 0;
+            int i = digitsStart;
+            while (i < end && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+                amount = amount * 10 + line.charAt(i) - '0';
+                i++;
+            }
+            if (i == end) {
+                return line.charAt(start) == '-' ? -amount : amount;
+            }
+        }
+        try {
+            return Integer.parseInt(line.substring(start, end));
+        } catch (NumberFormatException e) {
+            throw ErrorType.AMOUNT_NOT_A_NUMBER.exception();
+        }
     }
 
     /**
      * Prueft die Eingabe fuer den Fall, dass genau ein Name als Parameter erwartet
      * wird. Wirft eine Exception, falls dies nicht der Fall ist.
      * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
      * @throws IllegalArgumentException falls nicht ein Name als Parameter vorliegt.
      */
-    private void checkOneName(String rest) throws IllegalArgumentException {
-        if (rest.length() == 0) {
-            throw new IllegalArgumentException("expected a name as parameter, no parameter is given!");
+    private void checkOneName(int start, int end) throws IllegalArgumentException {
+        if (start == end) {
+            throw ErrorType.NAME_EXPECTED.exception();
+        }
+        firstPart = PartName.parse(line, start, end);
+    }
+
+    /**
+     * Prueft die Eingabe fuer den Fall, dass ein Dateipfad als Parameter erwartet
+     * wird. Der Pfad darf beliebige Zeichen ausser Leerzeichen enthalten und wird
+     * in firstPart gespeichert.
+     * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
+     * @throws IllegalArgumentException falls kein Pfad als Parameter vorliegt.
+     */
+    private void checkPath(int start, int end) throws IllegalArgumentException {
+        if (start == end) {
+            throw ErrorType.PATH_EXPECTED.exception();
         }
-        firstPart = new PartName(rest);
+        firstPart = line.substring(start, end);
     }
 
     /**
@@ -224,22 +481,36 @@ public class ValidateInput {
      */
     private void checkNoParameter(Input input) throws IllegalArgumentException {
         if (input.containsBlank()) {
-            throw new IllegalArgumentException("no parameter allowed for the quit-command!");
+            throw ErrorType.PARAMETER_NOT_ALLOWED.exception(command.getString());
         }
     }
 
     /**
-     * Ueberprueft ob die Eingabe Parameter hat (ausser bei dem Befehl quit). Wirft
-     * eine Exception, falls nicht.
+     * Gibt true zurueck, wenn der Befehl keine Parameter hat, also quit, begin,
+     * commit, rollback, stats oder getAllComponents ist.
+     * 
+     * @return true, falls der Befehl keine Parameter hat, sonst false.
+     */
+    private boolean hasNoParameter() {
+        return command == Command.QUIT || command == Command.BEGIN || command == Command.COMMIT
+                || command == Command.ROLLBACK || command == Command.STATS
+                || command == Command.GET_ALL_COMPONENTS;
+    }
+
+    /**
+     * Ueberprueft ob die Eingabe Parameter hat (ausser bei Befehlen ohne
+     * Parameter wie quit). Wirft eine Exception, falls nicht.
      * 
-     * @throws IllegalArgumentException falls der Befehl nicht quit ist und keine
-     *                                  Parameter vorliegen.
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
+     * @throws IllegalArgumentException falls der Befehl Parameter erwartet und
+     *                                  keine vorliegen.
      */
-    private void noParameterException(String rest) throws IllegalArgumentException {
-        if (command == Command.QUIT) {
+    private void noParameterException(int start, int end) throws IllegalArgumentException {
+        if (hasNoParameter()) {
             return;
-        } else if (rest.length() == 0) {
-            throw new IllegalArgumentException("parameters were expected but none are given!");
+        } else if (start == end) {
+            throw ErrorType.PARAMETERS_EXPECTED.exception();
         }
     }
 
@@ -247,16 +518,18 @@ public class ValidateInput {
      * Wirft eine Exception, wenn das letzte Zeichen der Eingabe ";", ":", "=", "+"
      * oder "-" ist.
      * 
+     * @param start Stelle, an der die Parameter beginnen.
+     * @param end   Stelle nach dem letzten Zeichen der Parameter.
      * @throws IllegalArgumentException falls das letze zeichen der Eingabe ";",
      *                                  ":", "=", "+" oder "-" ist.
      */
-    private void lastCharacterException(String rest) throws IllegalArgumentException {
-        if (rest.length() == 0 || command == Command.QUIT) {
+    private void lastCharacterException(int start, int end) throws IllegalArgumentException {
+        if (start == end || hasNoParameter()) {
             return;
         }
-        char lastChar = rest.charAt(rest.length() - 1);
+        char lastChar = line.charAt(end - 1);
         if (lastChar == ';' || lastChar == ':' || lastChar == '=' || lastChar == '+' || lastChar == '-') {
-            throw new IllegalArgumentException("the last character of the input can't be " + lastChar);
+            throw ErrorType.INVALID_LAST_CHARACTER.exception(String.valueOf(lastChar));
         }
     }
 
@@ -268,7 +541,7 @@ public class ValidateInput {
      */
     private void moreThanOneBlankException(Input input) throws IllegalArgumentException {
         if (input.containsMoreThanOneBlank()) {
-            throw new IllegalArgumentException("too many blanks, wrong format!");
+            throw ErrorType.TOO_MANY_BLANKS.exception();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package edu.kit.informatik.benchmark;
+
+import edu.kit.informatik.PartList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formen von synthetischen Katalogen, mit denen die Benchmarks die Grenzen der
+ * Produktstruktur ausloten. Jede Form erzeugt einen Katalog mit ungefaehr der
+ * gegebenen Anzahl an Teilen und genau einer obersten Baugruppe.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public enum BomShape {
+    /**
+     * Eine einzige Kette, in der jede Baugruppe genau aus der naechsten besteht.
+     * Maximal tief, jedes Teil kommt genau einmal vor.
+     */
+    CHAIN {
+        @Override
+        public GeneratedBom build(int size) {
+            PartList parts = new PartList();
+            for (int i = 1; i < size; i++) {
+                parts.addAssembly(name(i), single(name(i - 1)));
+            }
+            return new GeneratedBom(parts, name(size - 1), name(size - 2));
+        }
+    },
+    /**
+     * Eine einzige Baugruppe, die direkt aus allen anderen Teilen besteht.
+     * Maximal breit, aber nur eine Ebene tief.
+     */
+    WIDE {
+        @Override
+        public GeneratedBom build(int size) {
+            PartList parts = new PartList();
+            Map<String, Integer> subParts = new HashMap<String, Integer>();
+            for (int i = 1; i < size; i++) {
+                subParts.put(name(i), (i - 1) % MAX_AMOUNT + 1);
+            }
+            parts.addAssembly(name(0), subParts);
+            return new GeneratedBom(parts, name(0), name(1));
+        }
+    },
+    /**
+     * Ungefaehr Wurzel aus size Ebenen mit je Wurzel aus size Teilen. Jede
+     * Baugruppe besteht aus drei Teilen der naechsten Ebene, sodass sich
+     * benachbarte Baugruppen ihre Sub-Teile teilen und die Zahl der Pfade
+     * exponentiell mit der Tiefe waechst.
+     */
+    SHARED {
+        @Override
+        public GeneratedBom build(int size) {
+            PartList parts = new PartList();
+            int width = Math.max(1, (int) Math.sqrt(size));
+            int layers = Math.max(1, (size - 1) / width);
+
+            // Von unten nach oben aufbauen, damit jede neue Baugruppe nur aus schon
+            // existierenden Teilen besteht.
+            for (int layer = layers - 2; layer >= 0; layer--) {
+                for (int i = 0; i < width; i++) {
+                    Map<String, Integer> subParts = new HashMap<String, Integer>();
+                    for (int shift = 0; shift < SHARED_FAN_OUT; shift++) {
+                        subParts.put(name(1 + (layer + 1) * width + (i + shift) % width), 1);
+                    }
+                    parts.addAssembly(name(1 + layer * width + i), subParts);
+                }
+            }
+            Map<String, Integer> top = new HashMap<String, Integer>();
+            for (int i = 0; i < width; i++) {
+                top.put(name(1 + i), 1);
+            }
+            parts.addAssembly(name(0), top);
+            return new GeneratedBom(parts, name(0), name(1));
+        }
+    };
+
+    /**
+     * Groesste erlaubte Anzahl eines Teils in einer Baugruppe.
+     */
+    private static final int MAX_AMOUNT = 1000;
+
+    /**
+     * Anzahl der Sub-Teile jeder Baugruppe in SHARED.
+     */
+    private static final int SHARED_FAN_OUT = 3;
+
+    /**
+     * Erzeugt einen Katalog dieser Form.
+     *
+     * @param size ungefaehre Anzahl der Teile im Katalog, mindestens 2.
+     * @return der erzeugte Katalog.
+     */
+    public abstract GeneratedBom build(int size);
+
+    /**
+     * Gibt einen eindeutigen, nur aus Buchstaben bestehenden Namen fuer eine
+     * Nummer zurueck, wie ihn auch die Eingabe erlauben wuerde.
+     *
+     * @param index Nummer des Teils.
+     * @return Name des Teils.
+     */
+    public static String name(int index) {
+        StringBuilder name = new StringBuilder("P");
+        int rest = index;
+        do {
+            name.append((char) ('a' + rest % 26));
+            rest /= 26;
+        } while (rest > 0);
+        return name.toString();
+    }
+
+    /**
+     * Gibt eine Map zurueck, die genau ein Teil einmal enthaelt.
+     *
+     * @param name Name des Teils.
+     * @return Map mit dem Teil.
+     */
+    private static Map<String, Integer> single(String name) {
+        Map<String, Integer> subParts = new HashMap<String, Integer>();
+        subParts.put(name, 1);
+        return subParts;
+    }
+}
@@ -0,0 +1,45 @@
+package edu.kit.informatik.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst, wie lange der Aufbau eines ganzen Katalogs ueber addAssembly dauert.
+ * Jede Messung baut einen neuen Katalog auf.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BuildBenchmark {
+    @Param({"CHAIN", "WIDE", "SHARED"})
+    public BomShape shape;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * Baut einen Katalog der eingestellten Form und Groesse auf.
+     *
+     * @return der aufgebaute Katalog.
+     */
+    @Benchmark
+    public GeneratedBom build() {
+        return shape.build(size);
+    }
+}
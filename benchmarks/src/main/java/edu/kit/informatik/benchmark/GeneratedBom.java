@@ -0,0 +1,58 @@
+package edu.kit.informatik.benchmark;
+
+import edu.kit.informatik.PartList;
+
+/**
+ * Ein synthetisch erzeugter Katalog zusammen mit den Teilen, auf denen die
+ * Benchmarks arbeiten.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+public final class GeneratedBom {
+    private final PartList parts;
+    private final String root;
+    private final String subPart;
+
+    /**
+     * Erstellt einen erzeugten Katalog.
+     *
+     * @param parts   alle Teile des Katalogs.
+     * @param root    Baugruppe, die direkt oder indirekt alle Teile enthaelt.
+     * @param subPart direktes Sub-Teil von root, das genau einmal in root
+     *                vorkommt.
+     */
+    public GeneratedBom(PartList parts, String root, String subPart) {
+        this.parts = parts;
+        this.root = root;
+        this.subPart = subPart;
+    }
+
+    /**
+     * Gibt alle Teile des Katalogs zurueck.
+     *
+     * @return alle Teile des Katalogs.
+     */
+    public PartList getParts() {
+        return parts;
+    }
+
+    /**
+     * Gibt die Baugruppe zurueck, die direkt oder indirekt alle Teile enthaelt.
+     *
+     * @return Name der obersten Baugruppe.
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * Gibt ein direktes Sub-Teil der obersten Baugruppe zurueck, das genau einmal
+     * in ihr vorkommt.
+     *
+     * @return Name des Sub-Teils.
+     */
+    public String getSubPart() {
+        return subPart;
+    }
+}
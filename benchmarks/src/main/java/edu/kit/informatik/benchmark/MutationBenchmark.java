@@ -0,0 +1,87 @@
+package edu.kit.informatik.benchmark;
+
+import edu.kit.informatik.PartList;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst die veraendernden Befehle auf einem grossen Katalog. Jede Messung
+ * fuehrt eine Aenderung und ihre Umkehrung aus, damit der Katalog ueber alle
+ * Iterationen gleich bleibt: addAssembly mit removeAssembly und incAmount mit
+ * decAmount.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationBenchmark {
+    /**
+     * Name der Baugruppe, die in jeder Messung hinzugefuegt und wieder entfernt
+     * wird. Beginnt anders als alle Namen, die BomShape erzeugt.
+     */
+    private static final String NEW_ASSEMBLY = "Benchmark";
+
+    @Param({"CHAIN", "WIDE", "SHARED"})
+    public BomShape shape;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private PartList parts;
+    private String root;
+    private String subPart;
+    private Map<String, Integer> newSubParts = new HashMap<String, Integer>();
+
+    /**
+     * Erzeugt den Katalog.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        GeneratedBom bom = shape.build(size);
+        parts = bom.getParts();
+        root = bom.getRoot();
+        subPart = bom.getSubPart();
+        newSubParts.put(root, 1);
+        newSubParts.put(subPart, 2);
+    }
+
+    /**
+     * Fuegt eine neue oberste Baugruppe hinzu, die die bisherige oberste
+     * Baugruppe enthaelt, und entfernt sie wieder.
+     */
+    @Benchmark
+    public void addAndRemoveAssembly() {
+        parts.addAssembly(NEW_ASSEMBLY, newSubParts);
+        parts.removeAssembly(NEW_ASSEMBLY);
+    }
+
+    /**
+     * Erhoeht die Anzahl eines direkten Sub-Teils der obersten Baugruppe und
+     * vermindert sie wieder.
+     */
+    @Benchmark
+    public void incAndDecAmount() {
+        parts.incAmount(root, 1, subPart);
+        parts.decAmount(root, 1, subPart);
+    }
+}
@@ -0,0 +1,105 @@
+package edu.kit.informatik.benchmark;
+
+import edu.kit.informatik.Output;
+import edu.kit.informatik.PartList;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst die Abfragen getComponents und getAssemblies sowie die Ausgabe ihres
+ * Ergebnisses. Die Varianten ohne Cache leeren vor jeder Abfrage den Cache der
+ * Aufloesungen und messen so die eigentliche Aufloesung, die Varianten mit
+ * Cache messen wiederholte Abfragen derselben Baugruppe.
+ *
+ * @author Daniel Vollmer
+ * @version 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"CHAIN", "WIDE", "SHARED"})
+    public BomShape shape;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private PartList parts;
+    private String root;
+    private Map<String, Number> components;
+
+    /**
+     * Erzeugt den Katalog und leitet die Ausgabe ins Leere um, damit nur das
+     * Formatieren und nicht die Konsole gemessen wird.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        GeneratedBom bom = shape.build(size);
+        parts = bom.getParts();
+        root = bom.getRoot();
+        components = parts.getComponents(root);
+    }
+
+    /**
+     * Loest die oberste Baugruppe ohne Cache in ihre Einzelteile auf.
+     *
+     * @return alle Einzelteile der obersten Baugruppe.
+     */
+    @Benchmark
+    public Map<String, Number> getComponents() {
+        parts.getExplosionCache().clear();
+        return parts.getComponents(root);
+    }
+
+    /**
+     * Fragt die Einzelteile der obersten Baugruppe erneut ab, die Aufloesung kommt
+     * dabei aus dem Cache.
+     *
+     * @return alle Einzelteile der obersten Baugruppe.
+     */
+    @Benchmark
+    public Map<String, Number> getComponentsCached() {
+        return parts.getComponents(root);
+    }
+
+    /**
+     * Loest die oberste Baugruppe ohne Cache in ihre Baugruppen auf.
+     *
+     * @return alle Baugruppen der obersten Baugruppe.
+     */
+    @Benchmark
+    public Map<String, Number> getAssemblies() {
+        parts.getExplosionCache().clear();
+        return parts.getAssemblies(root);
+    }
+
+    /**
+     * Sortiert und formatiert alle Einzelteile der obersten Baugruppe und gibt sie
+     * aus.
+     */
+    @Benchmark
+    public void printAssembliesOrComponents() {
+        Output.printAssembliesOrComponents(components);
+        Output.flush();
+    }
+}